@@ -0,0 +1,307 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import maze.*;
+import mazeGenerator.*;
+import mazeSolver.*;
+
+/**
+ * Runs many parameter files in one JVM: every job generates its maze, checks
+ * it is perfect, measures its difficulty with MazeMetrics, solves it and
+ * validates the solution, on a bounded thread pool. Each job works on its
+ * own Maze, generator and solver objects. A summary with the result and
+ * timings (in milliseconds) of every phase is written as CSV, or as JSON if
+ * the output file name ends with ".json".
+ *
+ * @author Lettisia George
+ */
+class MazeBatchTester {
+
+	/**
+	 * Name of class, used in error messages.
+	 */
+	protected static final String progName = "MazeBatchTester";
+
+	/**
+	 * Columns of the summary.
+	 */
+	protected static final String columns[] = { "file", "type", "generator", "solver", "rows", "columns", "status",
+			"perfect", "solved", "cellsExplored", "valid", "initMs", "generateMs", "isPerfectMs", "solveMs",
+			"validateMs", "seed", "solutionLength", "deadEnds", "diameter", "wallFollowerCells", "metricsMs" };
+
+	/**
+	 * Print help/usage message.
+	 */
+	public static void usage(String progName) {
+		System.err.println(progName + ": [input directory | manifest file] [output file] <threads> <seed>");
+		System.err.println("<threads> = number of mazes run at the same time, default one per processor");
+		System.err.println("<seed> = seed every job seed is derived from, default the current time");
+		System.exit(1);
+	} // end of usage()
+
+	/**
+	 * Main function of batch tester.
+	 *
+	 * @param args
+	 *            A directory of .para files or a manifest listing one .para
+	 *            file per line, the summary file, and optionally the number
+	 *            of threads and the batch seed.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 4) {
+			System.err.println("Incorrect number of arguments.");
+			usage(progName);
+		}
+
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		if (args.length >= 3) {
+			try {
+				numThreads = Integer.parseInt(args[2]);
+			} catch (NumberFormatException e) {
+				numThreads = 0;
+			}
+			if (numThreads < 1) {
+				System.err.println("Number of threads must be at least 1.");
+				usage(progName);
+			}
+		}
+
+		// job i is generated with stream i of the batch seed, so the
+		// summary does not depend on which thread ran which job
+		long batchSeed = System.currentTimeMillis();
+		if (args.length == 4) {
+			try {
+				batchSeed = Long.parseLong(args[3]);
+			} catch (NumberFormatException e) {
+				System.err.println("Seed must be an integer.");
+				usage(progName);
+			}
+		}
+		MazeRandom seeds = new MazeRandom(batchSeed);
+
+		List<File> jobs = null;
+		try {
+			jobs = listJobs(new File(args[0]));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+		for (int i = 0; i < jobs.size(); i++) {
+			final File job = jobs.get(i);
+			final long seed = seeds.split(i).nextLong();
+			results.add(pool.submit(new Callable<String[]>() {
+				@Override
+				public String[] call() {
+					return runJob(job, seed);
+				}
+			}));
+		}
+		pool.shutdown();
+
+		List<String[]> rows = new ArrayList<String[]>();
+		int failed = 0;
+		for (int i = 0; i < results.size(); i++) {
+			String row[];
+			try {
+				row = results.get(i).get();
+			} catch (InterruptedException | ExecutionException e) {
+				if (e instanceof InterruptedException)
+					Thread.currentThread().interrupt();
+				// same seed as the job was given
+				row = new String[columns.length];
+				row[0] = jobs.get(i).getPath();
+				row[6] = "error: " + e;
+				row[16] = Long.toString(seeds.split(i).nextLong());
+			}
+			if (!"ok".equals(row[6]) || !"true".equals(row[10]))
+				failed++;
+			rows.add(row);
+		}
+
+		File fout = new File(args[1]);
+		try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(fout)))) {
+			if (fout.getName().endsWith(".json"))
+				writeJson(out, rows);
+			else
+				writeCsv(out, rows);
+		} catch (IOException e) {
+			System.err.println("Can not write " + fout + ": " + e.getMessage());
+			System.exit(1);
+		}
+
+		System.out.println(rows.size() + " mazes run, " + failed + " not solved and validated.");
+	} // end of main()
+
+	/**
+	 * Find the parameter files to run.
+	 *
+	 * @param input
+	 *            A directory, all .para files in it are run, or a manifest
+	 *            file with one parameter file per line, relative to the
+	 *            manifest. Empty lines and lines starting with '#' are
+	 *            skipped.
+	 * @return The parameter files in the order they are listed.
+	 */
+	protected static List<File> listJobs(File input) throws IOException {
+		List<File> jobs = new ArrayList<File>();
+		if (input.isDirectory()) {
+			File files[] = input.listFiles();
+			Arrays.sort(files);
+			for (File file : files)
+				if (file.isFile() && file.getName().endsWith(".para"))
+					jobs.add(file);
+			return jobs;
+		}
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(input))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				File file = new File(line);
+				jobs.add(file.isAbsolute() ? file : new File(input.getAbsoluteFile().getParentFile(), line));
+			}
+		} catch (FileNotFoundException e) {
+			throw new FileNotFoundException("Input directory or manifest doesn't exist.");
+		}
+		return jobs;
+	} // end of listJobs()
+
+	/**
+	 * Run one parameter file through generate, isPerfect, metrics, solve and
+	 * validate.
+	 *
+	 * @param fin
+	 *            The parameter file.
+	 * @param seed
+	 *            Seed of the generator.
+	 * @return A summary row, see columns.
+	 */
+	protected static String[] runJob(File fin, long seed) {
+		String row[] = new String[columns.length];
+		row[0] = fin.getPath();
+		row[16] = Long.toString(seed);
+		try {
+			MazeParameters params = MazeParameters.parse(fin);
+			row[1] = params.mazeType;
+			row[2] = params.mazeGeneratorName;
+			row[3] = params.mazeSolverName;
+			row[4] = Integer.toString(params.rowNum);
+			row[5] = Integer.toString(params.colNum);
+			if (params.rowNum < 1 || params.colNum < 1)
+				throw new IllegalArgumentException("Row or column number of maze must be at least 1.");
+
+			Maze maze = Maze.forType(params.mazeType);
+			maze.isVisu = false;
+			maze.isVerbose = false;
+			MazeGenerator mazeGen = MazeGenerator.forName(params.mazeGeneratorName);
+			MazeSolver mazeSolver = MazeSolver.forName(params.mazeSolverName);
+
+			long start = System.nanoTime();
+			maze.initMaze(params.rowNum, params.colNum, params.entR, params.entC, params.exitR, params.exitC,
+					params.tunnelList);
+			row[11] = millisSince(start);
+			if (!maze.isOnEdge(params.entR, params.entC) || !maze.isOnEdge(params.exitR, params.exitC))
+				throw new IllegalArgumentException("Incorrect maze entrance or exit position.");
+
+			start = System.nanoTime();
+			mazeGen.generateMaze(maze, seed);
+			row[12] = millisSince(start);
+
+			start = System.nanoTime();
+			boolean isPerfectMaze = maze.isPerfect();
+			row[13] = millisSince(start);
+			row[7] = Boolean.toString(isPerfectMaze);
+
+			if (isPerfectMaze) {
+				start = System.nanoTime();
+				MazeMetrics metrics = MazeMetrics.of(maze);
+				row[21] = millisSince(start);
+				row[17] = Integer.toString(metrics.solutionLength);
+				row[18] = Long.toString(metrics.deadEnds);
+				row[19] = Integer.toString(metrics.diameter);
+				row[20] = Long.toString(metrics.wallFollowerCells);
+			}
+
+			if (isPerfectMaze && mazeSolver != null) {
+				start = System.nanoTime();
+				mazeSolver.solveMaze(maze);
+				row[14] = millisSince(start);
+				row[8] = Boolean.toString(mazeSolver.isSolved());
+				row[9] = Integer.toString(mazeSolver.cellsExplored());
+
+				if (mazeSolver.isSolved()) {
+					start = System.nanoTime();
+					row[10] = Boolean.toString(maze.validate());
+					row[15] = millisSince(start);
+				}
+			}
+			row[6] = "ok";
+		} catch (IOException | RuntimeException | StackOverflowError e) {
+			row[6] = "error: " + (e.getMessage() != null ? e.getMessage() : e.toString());
+		}
+		return row;
+	} // end of runJob()
+
+	// auxiliary functions
+	private static String millisSince(long start) {
+		return String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e6);
+	} // end of millisSince()
+
+	private static void writeCsv(PrintStream out, List<String[]> rows) {
+		out.println(String.join(",", columns));
+		for (String row[] : rows) {
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0)
+					out.print(',');
+				String value = row[i] == null ? "" : row[i];
+				if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+						|| value.indexOf('\r') >= 0)
+					value = '"' + value.replace("\"", "\"\"") + '"';
+				out.print(value);
+			}
+			out.println();
+		}
+	} // end of writeCsv()
+
+	private static void writeJson(PrintStream out, List<String[]> rows) {
+		out.println("[");
+		for (int j = 0; j < rows.size(); j++) {
+			String row[] = rows.get(j);
+			out.print("  {");
+			for (int i = 0; i < row.length; i++) {
+				out.print((i > 0 ? ", \"" : "\"") + columns[i] + "\": ");
+				// columns 0 to 3 and 6 are strings, the others numbers or
+				// booleans
+				if (row[i] == null)
+					out.print("null");
+				else if (i <= 3 || i == 6)
+					printString(out, row[i]);
+				else
+					out.print(row[i]);
+			}
+			out.println(j < rows.size() - 1 ? "}," : "}");
+		}
+		out.println("]");
+	} // end of writeJson()
+
+	private static void printString(PrintStream out, String value) {
+		out.print('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\')
+				out.print("\\" + ch);
+			else if (ch < ' ')
+				out.print(String.format("\\u%04x", (int) ch));
+			else
+				out.print(ch);
+		}
+		out.print('"');
+	} // end of printString()
+
+} // end of class MazeBatchTester
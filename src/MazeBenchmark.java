@@ -0,0 +1,321 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import maze.*;
+import mazeGenerator.*;
+import mazeSolver.*;
+
+/**
+ * Benchmarks of Maze.initMaze, the maze generators (one maze at a time, in
+ * bulk, see MazeBulkGenerator, and on a lazy maze, which is checked to give
+ * the same maze), Maze.isPerfect, distance fields (see
+ * MazeDistances), the maze solvers and Maze.validate for every combination of
+ * maze type, size and algorithm asked for.
+ *
+ * Every benchmark runs a number of warm up operations and then times each
+ * measured operation on its own, so preparing the input (e.g. restoring the
+ * generated maze before a solver runs) is not counted. It reports throughput
+ * (operations per second), average time per operation and bytes allocated
+ * per operation. Tunnel placement and the generators are driven by a fixed
+ * seed, so runs are comparable across versions of the code.
+ *
+ * @author Lettisia George
+ */
+class MazeBenchmark {
+
+	/**
+	 * Name of class, used in error messages.
+	 */
+	protected static final String progName = "MazeBenchmark";
+
+	/**
+	 * Seed of the tunnel placement and the generators.
+	 */
+	protected static final long SEED = 20171016L;
+
+	/**
+	 * Standard outstream.
+	 */
+	protected static final PrintStream outStream = System.out;
+
+	/**
+	 * Columns of the csv output.
+	 */
+	protected static final String columns = "benchmark,type,size,algorithm,opsPerSec,msPerOp,msStdDev,bytesPerOp";
+
+	/**
+	 * Number of warm up and measured operations of every benchmark.
+	 */
+	protected static int warmup = 3;
+	protected static int iterations = 10;
+
+	/**
+	 * Optional csv copy of the results.
+	 */
+	protected static PrintStream csvStream = null;
+
+	/**
+	 * Used to read the bytes allocated by the benchmarking thread.
+	 */
+	protected static final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * Print help/usage message.
+	 */
+	public static void usage(String progName) {
+		System.err.println(progName + ": <-types normal,tunnel,hex> <-sizes 100,200> <-generators modiPrim,recurBack,growingTree,huntAndKill,recurDiv,binaryTree,sidewinder>");
+		System.err.println("        <-solvers wallFollower,biDirrecurBack,sample> <-warmup 3> <-iterations 10> <-csv fileName>");
+		System.err.println("Mazes are square, a size of 100 gives a 100 x 100 maze.");
+		System.exit(1);
+	} // end of usage()
+
+	/**
+	 * Main function of benchmark.
+	 *
+	 * @param args
+	 *            Options as listed by usage().
+	 */
+	public static void main(String[] args) {
+		String types[] = { "normal", "tunnel", "hex" };
+		String sizes[] = { "100", "200" };
+		String generators[] = { "modiPrim", "recurBack", "growingTree", "huntAndKill", "recurDiv", "binaryTree",
+				"sidewinder" };
+		String solvers[] = { "wallFollower", "biDirrecurBack", "sample" };
+
+		// read command line arguments
+		if (args.length % 2 != 0) {
+			System.err.println("Incorrect number of arguments.");
+			usage(progName);
+		}
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				switch (args[i]) {
+				case "-types":
+					types = args[i + 1].split(",");
+					break;
+				case "-sizes":
+					sizes = args[i + 1].split(",");
+					break;
+				case "-generators":
+					generators = args[i + 1].split(",");
+					break;
+				case "-solvers":
+					solvers = args[i + 1].split(",");
+					break;
+				case "-warmup":
+					warmup = Integer.parseInt(args[i + 1]);
+					break;
+				case "-iterations":
+					iterations = Integer.parseInt(args[i + 1]);
+					break;
+				case "-csv":
+					csvStream = new PrintStream(new FileOutputStream(args[i + 1]));
+					csvStream.println(columns);
+					break;
+				default:
+					System.err.println("Unknown option " + args[i] + ".");
+					usage(progName);
+				}
+			}
+			// check the names before anything runs
+			for (String type : types)
+				Maze.forType(type);
+			for (String name : generators)
+				MazeGenerator.forName(name);
+			for (String name : solvers)
+				MazeSolver.forName(name);
+		} catch (IllegalArgumentException | IOException e) {
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+		if (warmup < 0 || iterations < 1) {
+			System.err.println("Number of iterations must be at least 1.");
+			usage(progName);
+		}
+
+		outStream.println(String.format("%-24s %-7s %6s %-28s %14s %12s %10s %14s", "benchmark", "type", "size",
+				"algorithm", "ops/s", "ms/op", "stddev", "B/op"));
+		for (String type : types)
+			for (String size : sizes)
+				runAll(type, Integer.parseInt(size), generators, solvers);
+
+		if (csvStream != null)
+			csvStream.close();
+	} // end of main()
+
+	/**
+	 * Run every benchmark on one type and size of maze.
+	 */
+	protected static void runAll(final String type, final int size, String generators[], String solvers[]) {
+		final List<int[]> tunnelList = tunnels(type, size);
+
+		measure("initMaze", type, size, "", null, () -> newMaze(type, size, tunnelList));
+
+		// all-wall maze lazy mazes are loaded from
+		final MazeFile allWalls;
+		try {
+			allWalls = MazeFile.decode(MazeFile.encode(newMaze(type, size, tunnelList)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		for (final String genName : generators) {
+			// fixture shared by the benchmarks after generateMaze, restored
+			// before every operation
+			Maze generated = newMaze(type, size, tunnelList);
+			try {
+				MazeGenerator.forName(genName).generateMaze(generated, SEED);
+			} catch (IllegalArgumentException e) {
+				// e.g. recursive division on a tunnel maze
+				outStream.println(String.format("%-24s %-7s %6d %-28s %s", "generateMaze", type, size, genName,
+						"skipped, normal mazes only"));
+				continue;
+			}
+			final MazeFile fixture;
+			try {
+				fixture = MazeFile.decode(MazeFile.encode(generated));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			final Maze current[] = { null };
+			measure("generateMaze", type, size, genName, () -> current[0] = newMaze(type, size, tunnelList),
+					() -> MazeGenerator.forName(genName).generateMaze(current[0], SEED));
+
+			// one maze per operation on a reused maze, ops/s is mazes per
+			// second per core
+			final MazeBulkGenerator bulk = new MazeBulkGenerator(type, genName, size, size, 0, 0, size - 1,
+					size - 1, tunnelList);
+			final int next[] = { 0 };
+			measure("bulkGenerate", type, size, genName, null,
+					() -> bulk.generateRange(SEED, next[0], ++next[0], (index, seed, maze) -> {
+					}));
+
+			// cells of a lazy maze are built while it is generated, which
+			// must not change the maze
+			measure("lazyGenerate", type, size, genName, () -> current[0] = load(allWalls, true),
+					() -> MazeGenerator.forName(genName).generateMaze(current[0], SEED));
+			if (!Arrays.equals(MazeFile.encode(current[0]), MazeFile.encode(generated)))
+				outStream.println(String.format("%-24s %-7s %6d %-28s %s", "lazyGenerate", type, size, genName,
+						"differs from the maze generated eagerly"));
+
+			measure("isPerfect", type, size, genName, () -> current[0] = load(fixture), () -> current[0].isPerfect());
+			measure("distances", type, size, genName, null, () -> MazeDistances.compute(fixture, fixture.entranceId()));
+
+			if (!generated.isPerfect()) {
+				outStream.println(String.format("%-24s %-7s %6d %-28s %s", "solveMaze/validate", type, size, genName,
+						"skipped, the maze is not perfect"));
+				continue;
+			}
+
+			for (final String solverName : solvers) {
+				if (MazeSolver.forName(solverName) == null)
+					continue;
+				measure("solveMaze", type, size, genName + "/" + solverName, () -> current[0] = load(fixture),
+						() -> MazeSolver.forName(solverName).solveMaze(current[0]));
+				measure("validate", type, size, genName + "/" + solverName, () -> {
+					current[0] = load(fixture);
+					MazeSolver.forName(solverName).solveMaze(current[0]);
+				}, () -> current[0].validate());
+			}
+		}
+	} // end of runAll()
+
+	/**
+	 * Time a benchmark and print its results.
+	 *
+	 * @param setup
+	 *            Run before every operation and not measured, may be null.
+	 * @param op
+	 *            The operation measured.
+	 */
+	protected static void measure(String name, String type, int size, String algorithm, Runnable setup, Runnable op) {
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < warmup; i++) {
+			if (setup != null)
+				setup.run();
+			op.run();
+		}
+
+		double times[] = new double[iterations];
+		double total = 0;
+		long allocated = 0;
+		for (int i = 0; i < iterations; i++) {
+			if (setup != null)
+				setup.run();
+			long bytes = threadBean.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			op.run();
+			times[i] = (System.nanoTime() - start) / 1e6;
+			allocated += threadBean.getThreadAllocatedBytes(threadId) - bytes;
+			total += times[i];
+		}
+
+		double avg = total / iterations;
+		double var = 0;
+		for (double t : times)
+			var += (t - avg) * (t - avg);
+		double stdDev = Math.sqrt(var / iterations);
+		double opsPerSec = iterations / (total / 1e3);
+		double bytesPerOp = (double) allocated / iterations;
+
+		outStream.println(String.format(Locale.ROOT, "%-24s %-7s %6d %-28s %14.3f %12.3f %10.3f %14.0f", name, type,
+				size, algorithm, opsPerSec, avg, stdDev, bytesPerOp));
+		if (csvStream != null)
+			csvStream.println(String.format(Locale.ROOT, "%s,%s,%d,%s,%.3f,%.3f,%.3f,%.0f", name, type, size,
+					algorithm, opsPerSec, avg, stdDev, bytesPerOp));
+	} // end of measure()
+
+	// auxiliary functions
+	/**
+	 * A quiet, all-wall maze with the entrance at the bottom left and the exit
+	 * at the top right corner.
+	 */
+	protected static Maze newMaze(String type, int size, List<int[]> tunnelList) {
+		Maze maze = Maze.forType(type);
+		maze.isVisu = false;
+		maze.isVerbose = false;
+		maze.initMaze(size, size, 0, 0, size - 1, size - 1, tunnelList);
+		return maze;
+	} // end of newMaze()
+
+	protected static Maze load(MazeFile fixture) {
+		return load(fixture, false);
+	} // end of load()
+
+	protected static Maze load(MazeFile fixture, boolean isLazy) {
+		Maze maze = fixture.load(isLazy);
+		maze.isVisu = false;
+		maze.isVerbose = false;
+		return maze;
+	} // end of load()
+
+	/**
+	 * size / 5 tunnels between distinct random cells for tunnel mazes, none
+	 * otherwise.
+	 */
+	protected static List<int[]> tunnels(String type, int size) {
+		List<int[]> tunnelList = new ArrayList<int[]>();
+		if (!type.equals("tunnel"))
+			return tunnelList;
+
+		Random random = new Random(SEED);
+		boolean used[][] = new boolean[size][size];
+		int numTunnels = Math.min(size / 5, size * size / 2 - 1);
+		int cells[] = new int[4];
+		while (tunnelList.size() < numTunnels) {
+			for (int i = 0; i < 4; i += 2) {
+				do {
+					cells[i] = random.nextInt(size);
+					cells[i + 1] = random.nextInt(size);
+				} while (used[cells[i]][cells[i + 1]]);
+				used[cells[i]][cells[i + 1]] = true;
+			}
+			tunnelList.add(cells.clone());
+		}
+		return tunnelList;
+	} // end of tunnels()
+
+} // end of class MazeBenchmark
@@ -0,0 +1,98 @@
+import java.io.*;
+
+import maze.*;
+import mazeSolver.*;
+
+/**
+ * Solves a maze file (see MazeFile, e.g. written by MazeOffHeapTester) with
+ * the external memory breadth first search of ExternalBfsSolver, for mazes
+ * larger than memory. The shortest path is written to a path file.
+ *
+ * @author Lettisia George
+ */
+class MazeExternalSolver {
+
+	/**
+	 * Name of class, used in error messages.
+	 */
+	protected static final String progName = "MazeExternalSolver";
+
+	/**
+	 * Standard outstream.
+	 */
+	protected static final PrintStream outStream = System.out;
+
+	/**
+	 * Default number of cell ids held in memory, 64MB.
+	 */
+	protected static final int defaultMemoryIds = 1 << 23;
+
+	/**
+	 * Print help/usage message.
+	 */
+	public static void usage(String progName) {
+		System.err.println(progName + ": [maze file] [path file] <memory ids> <work directory>");
+		System.err.println("<memory ids> = cell ids held in memory before spilling to disk, default " + defaultMemoryIds);
+		System.err.println("<work directory> = directory of the temporary files, default the system one");
+		System.exit(1);
+	} // end of usage()
+
+	/**
+	 * Main function of solver.
+	 *
+	 * @param args
+	 *            The maze file and path file, optionally followed by the
+	 *            number of ids held in memory and the work directory.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 4) {
+			System.err.println("Incorrect number of arguments.");
+			usage(progName);
+		}
+
+		int memoryIds = defaultMemoryIds;
+		if (args.length >= 3) {
+			try {
+				memoryIds = Integer.parseInt(args[2]);
+			} catch (NumberFormatException e) {
+				memoryIds = 0;
+			}
+			if (memoryIds < 1) {
+				System.err.println("Number of memory ids must be at least 1.");
+				usage(progName);
+			}
+		}
+		File workDir = args.length == 4 ? new File(args[3]) : null;
+
+		MazeFile maze = null;
+		try {
+			maze = MazeFile.open(new File(args[0]));
+		} catch (FileNotFoundException e) {
+			System.err.println("Maze file doesn't exist.");
+			usage(progName);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+
+		ExternalBfsSolver mazeSolver = new ExternalBfsSolver(workDir, memoryIds);
+		outStream.println(mazeSolver.getClass().getSimpleName() + " is solving the " + maze.numCells() + " cell maze.");
+		long start = System.nanoTime();
+		try {
+			mazeSolver.solveMaze(maze, new File(args[1]));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		outStream.println("Solved in " + (System.nanoTime() - start) / 1000000 + " ms.");
+
+		if (mazeSolver.isSolved()) {
+			outStream.println("The maze has been solved!");
+			outStream.println("Number of cells visited = " + mazeSolver.cellsExplored());
+			outStream.println("Length of the solution = " + mazeSolver.pathLength());
+		} else {
+			outStream.println("Solver was failed!");
+		}
+	} // end of main()
+
+} // end of class MazeExternalSolver
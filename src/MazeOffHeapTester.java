@@ -0,0 +1,148 @@
+import java.io.*;
+
+import maze.*;
+import mazeGenerator.*;
+import mazeSolver.*;
+
+/**
+ * Generates and solves a maze stored off the Java heap (see OffHeapMaze), for
+ * mazes too large to build as Cell objects. The maze is generated with the
+ * binary tree or sidewinder generator if the parameter file names it, else
+ * with the recursive backtracker, and solved with the wall follower, the only
+ * algorithms that work on OffHeapMaze. The solution is validated by following
+ * the solver's marks back from the exit. Given a checkpoint file, the
+ * recursive backtracker saves its progress there and a rerun with the same
+ * arguments resumes from it.
+ *
+ * @author Lettisia George
+ */
+class MazeOffHeapTester {
+
+	/**
+	 * Name of class, used in error messages.
+	 */
+	protected static final String progName = "MazeOffHeapTester";
+
+	/**
+	 * Standard outstream.
+	 */
+	protected static final PrintStream outStream = System.out;
+
+	/**
+	 * Seconds between checkpoints if none are given.
+	 */
+	protected static final int checkpointSeconds = 600;
+
+	/**
+	 * Print help/usage message.
+	 */
+	public static void usage(String progName) {
+		System.err.println(progName + ": [input fileName] <maze file> <seed> <checkpoint file> <checkpoint seconds>");
+		System.err.println("<maze file> = file the maze is mapped from and left in, '-' for off-heap memory only");
+		System.err.println("<seed> = seed of the generator, default the current time");
+		System.err.println("<checkpoint file> = file the recursive backtracker saves its progress to and resumes from");
+		System.err.println("<checkpoint seconds> = seconds between checkpoints, default " + checkpointSeconds);
+		System.exit(1);
+	} // end of usage()
+
+	/**
+	 * Main function of tester.
+	 *
+	 * @param args
+	 *            The input filename, optionally followed by the maze file, the
+	 *            seed of the generator, the checkpoint file and the seconds
+	 *            between checkpoints.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 5) {
+			System.err.println("Incorrect number of arguments.");
+			usage(progName);
+		}
+
+		File mazeFile = args.length >= 2 && !args[1].equals("-") ? new File(args[1]) : null;
+
+		long seed = System.currentTimeMillis();
+		if (args.length >= 3) {
+			try {
+				seed = Long.parseLong(args[2]);
+			} catch (NumberFormatException e) {
+				System.err.println("Seed must be an integer.");
+				usage(progName);
+			}
+		}
+
+		File checkpoint = args.length >= 4 ? new File(args[3]) : null;
+		long interval = checkpointSeconds * 1000L;
+		if (args.length == 5) {
+			try {
+				interval = Long.parseLong(args[4]) * 1000;
+			} catch (NumberFormatException e) {
+				System.err.println("Checkpoint seconds must be an integer.");
+				usage(progName);
+			}
+		}
+
+		MazeParameters params = null;
+		OffHeapMaze maze = null;
+		try {
+			params = MazeParameters.parse(new File(args[0]));
+			int type = Maze.forType(params.mazeType).type;
+			if (params.entR < 0 || params.entR >= params.rowNum || params.entC < 0 || params.entC >= params.colNum
+					|| params.exitR < 0 || params.exitR >= params.rowNum || params.exitC < 0
+					|| params.exitC >= params.colNum)
+				throw new IllegalArgumentException("Incorrect maze entrance or exit position.");
+			maze = OffHeapMaze.create(type, params.rowNum, params.colNum, params.entR, params.entC, params.exitR,
+					params.exitC, params.tunnelList, mazeFile);
+		} catch (FileNotFoundException e) {
+			System.err.println("Input file doesn't exist.");
+			usage(progName);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+
+		String genName = params.mazeGeneratorName;
+		if (!genName.equals("binaryTree") && !genName.equals("sidewinder"))
+			genName = "recurBack";
+		if (checkpoint != null && !genName.equals("recurBack")) {
+			System.err.println("Only the recursive backtracker saves checkpoints.");
+			usage(progName);
+		}
+		MazeGenerator mazeGen = MazeGenerator.forName(genName);
+		outStream.println(mazeGen.getClass().getSimpleName() + " is " + (checkpoint != null && checkpoint.exists()
+				? "resuming" : "generating") + " the " + maze.numCells() + " cell maze with seed " + seed + ".");
+		long start = System.nanoTime();
+		try {
+			if (mazeGen instanceof BinaryTreeGenerator)
+				((BinaryTreeGenerator) mazeGen).generateMaze(maze, seed);
+			else if (mazeGen instanceof SidewinderGenerator)
+				((SidewinderGenerator) mazeGen).generateMaze(maze, seed);
+			else if (checkpoint != null)
+				((RecursiveBacktrackerGenerator) mazeGen).generateMaze(maze, seed, checkpoint, interval);
+			else
+				((RecursiveBacktrackerGenerator) mazeGen).generateMaze(maze, seed);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+		maze.force();
+		outStream.println("Generated in " + (System.nanoTime() - start) / 1000000 + " ms.");
+
+		outStream.println("WallFollowerSolver is solving the maze.");
+		WallFollowerSolver mazeSolver = new WallFollowerSolver();
+		start = System.nanoTime();
+		mazeSolver.solveMaze(maze);
+		outStream.println("Solved in " + (System.nanoTime() - start) / 1000000 + " ms.");
+		if (mazeSolver.isSolved()) {
+			outStream.println("The maze has been solved!");
+			outStream.println("Number of cells visited = " + mazeSolver.cellsExplored());
+			long length = maze.pathLength();
+			outStream.println("The solution is " + (length > 0 ? "" : "not ") + "valid!");
+			if (length > 0)
+				outStream.println("Length of the solution = " + length);
+		} else {
+			outStream.println("Solver was failed!");
+		}
+	} // end of main()
+
+} // end of class MazeOffHeapTester
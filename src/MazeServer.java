@@ -0,0 +1,365 @@
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import maze.*;
+import mazeGenerator.*;
+import mazeSolver.*;
+
+/**
+ * Local HTTP service generating and solving mazes, on the HTTP server of the
+ * JDK. Requests are handled on virtual threads when the JVM has them (Java
+ * 21), otherwise on a pool of one thread per processor. Generated mazes are
+ * kept in a MazeCache, so repeated requests are not generated again.
+ * <p>
+ * GET /maze returns a generated maze in the MazeFile format (format=binary)
+ * or as an image (format=svg). GET /solve generates a maze, solves it and
+ * returns the stats of the run as JSON (format=json) or the maze with the
+ * footprints of the solver (format=svg). Both take the parameters
+ * type, rows, columns, generator, seed, entR, entC, exitR, exitC and tunnels
+ * (as "r1,c1,r2,c2;..."), /solve also takes solver. The seed used is sent in
+ * the X-Maze-Seed header.
+ *
+ * @author Lettisia George
+ */
+class MazeServer {
+
+	/**
+	 * Name of class, used in error messages.
+	 */
+	protected static final String progName = "MazeServer";
+
+	/**
+	 * Standard outstream.
+	 */
+	protected static final PrintStream outStream = System.out;
+
+	/**
+	 * Default port, cache size in MB and largest number of cells of a request.
+	 */
+	protected static final int defaultPort = 8080;
+	protected static final int defaultCacheMB = 64;
+	protected static final int defaultMaxCells = 1 << 20;
+
+	/**
+	 * Connections waiting to be accepted.
+	 */
+	protected static final int backlog = 4096;
+
+	private static MazeCache cache;
+	private static int maxCells;
+
+	/**
+	 * Print help/usage message.
+	 */
+	public static void usage(String progName) {
+		System.err.println(progName + ": <port> <cache MB> <max cells>");
+		System.err.println("<port> = port listened to on localhost, default " + defaultPort);
+		System.err.println("<cache MB> = memory kept for generated mazes, default " + defaultCacheMB);
+		System.err.println("<max cells> = largest maze served, default " + defaultMaxCells);
+		System.exit(1);
+	} // end of usage()
+
+	/**
+	 * Main function of server.
+	 *
+	 * @param args
+	 *            Optionally the port, the cache size and the largest maze.
+	 */
+	public static void main(String[] args) {
+		if (args.length > 3) {
+			System.err.println("Incorrect number of arguments.");
+			usage(progName);
+		}
+
+		int port = defaultPort;
+		int cacheMB = defaultCacheMB;
+		maxCells = defaultMaxCells;
+		try {
+			if (args.length >= 1)
+				port = Integer.parseInt(args[0]);
+			if (args.length >= 2)
+				cacheMB = Integer.parseInt(args[1]);
+			if (args.length == 3)
+				maxCells = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			System.err.println("Arguments must be integers.");
+			usage(progName);
+		}
+		if (port < 0 || port > 65535 || cacheMB < 0 || maxCells < 1) {
+			System.err.println("Incorrect argument value.");
+			usage(progName);
+		}
+		cache = new MazeCache((long) cacheMB << 20, null);
+
+		HttpServer server = null;
+		try {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), backlog);
+		} catch (IOException e) {
+			System.err.println("Can not listen on port " + port + ": " + e.getMessage());
+			System.exit(1);
+		}
+		server.createContext("/maze", MazeServer::handleMaze);
+		server.createContext("/solve", MazeServer::handleSolve);
+		server.setExecutor(newExecutor());
+		server.start();
+		outStream.println(progName + " is listening on http://" + server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + "/");
+	} // end of main()
+
+	/**
+	 * @return A virtual thread per task executor if the JVM has one, else a
+	 *         pool of one thread per processor.
+	 */
+	protected static ExecutorService newExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	} // end of newExecutor()
+
+	/**
+	 * GET /maze, a generated maze.
+	 */
+	private static void handleMaze(HttpExchange exchange) throws IOException {
+		try {
+			Map<String, String> query = query(exchange);
+			if (query == null)
+				return;
+			Request request = new Request(query);
+			byte encoded[] = request.encoded();
+			exchange.getResponseHeaders().set("X-Maze-Seed", Long.toString(request.seed));
+
+			switch (query.getOrDefault("format", "binary")) {
+			case "binary":
+				send(exchange, 200, "application/octet-stream", encoded);
+				break;
+			case "svg":
+				StringBuilder svg = new StringBuilder();
+				MazeSvg.write(MazeFile.decode(encoded), null, svg);
+				send(exchange, 200, "image/svg+xml", svg.toString().getBytes(StandardCharsets.UTF_8));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown format, binary or svg.");
+			}
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+		} catch (RuntimeException e) {
+			sendError(exchange, 500, e.toString());
+		} finally {
+			exchange.close();
+		}
+	} // end of handleMaze()
+
+	/**
+	 * GET /solve, a generated maze solved.
+	 */
+	private static void handleSolve(HttpExchange exchange) throws IOException {
+		try {
+			Map<String, String> query = query(exchange);
+			if (query == null)
+				return;
+			Request request = new Request(query);
+			String solverName = query.getOrDefault("solver", "wallFollower");
+			MazeSolver mazeSolver = MazeSolver.forName(solverName);
+			if (mazeSolver == null)
+				throw new IllegalArgumentException("A maze solver is required.");
+			String format = query.getOrDefault("format", "json");
+			if (!format.equals("json") && !format.equals("svg"))
+				throw new IllegalArgumentException("Unknown format, json or svg.");
+
+			MazeStats stats = new MazeStats();
+			stats.put("type", request.mazeType);
+			stats.put("generator", request.generatorName);
+			stats.put("solver", solverName);
+			stats.put("rows", request.rows);
+			stats.put("columns", request.columns);
+			stats.put("seed", request.seed);
+
+			// the maze comes from the cache, and is only generated on a miss
+			stats.start("fetchMaze");
+			byte encoded[] = request.encoded();
+			stats.stop(null);
+			stats.start("loadMaze");
+			Maze maze = MazeFile.decode(encoded).load();
+			stats.stop(null);
+			maze.isVisu = false;
+			maze.isVerbose = false;
+
+			stats.start("isPerfect");
+			boolean isPerfectMaze = maze.isPerfect();
+			stats.stop(null);
+			stats.put("perfect", isPerfectMaze);
+
+			// only perfect mazes are solved, as in MazeTester
+			if (isPerfectMaze) {
+				stats.start("solveMaze");
+				mazeSolver.solveMaze(maze);
+				stats.stop(maze.counters);
+				stats.put("solved", mazeSolver.isSolved());
+				stats.put("cellsExplored", mazeSolver.cellsExplored());
+				if (mazeSolver.isSolved()) {
+					stats.start("validate");
+					boolean isValid = maze.validate();
+					stats.stop(null);
+					stats.put("valid", isValid);
+				}
+			}
+
+			exchange.getResponseHeaders().set("X-Maze-Seed", Long.toString(request.seed));
+			if (format.equals("json")) {
+				send(exchange, 200, "application/json", (stats.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+			} else {
+				StringBuilder svg = new StringBuilder();
+				MazeSvg.write(maze, svg);
+				send(exchange, 200, "image/svg+xml", svg.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+		} catch (RuntimeException e) {
+			sendError(exchange, 500, e.toString());
+		} finally {
+			exchange.close();
+		}
+	} // end of handleSolve()
+
+	/**
+	 * Parameters of the maze of a request, checked as MazeTester checks a
+	 * parameter file.
+	 */
+	private static class Request {
+		String mazeType;
+		String generatorName;
+		int rows;
+		int columns;
+		int entR;
+		int entC;
+		int exitR;
+		int exitC;
+		List<int[]> tunnelList = new ArrayList<int[]>();
+		long seed;
+
+		Request(Map<String, String> query) {
+			mazeType = query.getOrDefault("type", "normal");
+			generatorName = query.getOrDefault("generator", "recurBack");
+			rows = intParam(query, "rows", 10);
+			columns = intParam(query, "columns", 10);
+			if (rows < 1 || columns < 1)
+				throw new IllegalArgumentException("Row or column number of maze must be at least 1.");
+			if ((long) rows * columns > maxCells)
+				throw new IllegalArgumentException("Maze is larger than " + maxCells + " cells.");
+			entR = intParam(query, "entR", 0);
+			entC = intParam(query, "entC", 0);
+			exitR = intParam(query, "exitR", rows - 1);
+			exitC = intParam(query, "exitC", columns - 1);
+			if (!isOnEdge(entR, entC) || !isOnEdge(exitR, exitC))
+				throw new IllegalArgumentException("Incorrect maze entrance or exit position.");
+
+			String tunnels = query.get("tunnels");
+			if (tunnels != null && !tunnels.isEmpty()) {
+				for (String tunnel : tunnels.split(";")) {
+					String ends[] = tunnel.split(",");
+					if (ends.length != 4)
+						throw new IllegalArgumentException("A tunnel is r1,c1,r2,c2.");
+					int ints[] = new int[4];
+					for (int i = 0; i < 4; i++)
+						ints[i] = parseInt(ends[i].trim(), "tunnels");
+					if (!isIn(ints[0], ints[1]) || !isIn(ints[2], ints[3]))
+						throw new IllegalArgumentException("Tunnel is outside the maze.");
+					tunnelList.add(ints);
+				}
+			}
+
+			String seedParam = query.get("seed");
+			if (seedParam == null) {
+				seed = ThreadLocalRandom.current().nextLong();
+			} else {
+				try {
+					seed = Long.parseLong(seedParam);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Seed must be an integer.");
+				}
+			}
+		}
+
+		/**
+		 * @return The MazeFile encoding of the maze, shared with the cache.
+		 */
+		byte[] encoded() {
+			return cache.getEncoded(mazeType, generatorName, rows, columns, entR, entC, exitR, exitC, tunnelList,
+					seed);
+		}
+
+		private boolean isIn(int r, int c) {
+			return r >= 0 && r < rows && c >= 0 && c < columns;
+		}
+
+		private boolean isOnEdge(int r, int c) {
+			return isIn(r, c) && (r == 0 || r == rows - 1 || c == 0 || c == columns - 1);
+		}
+	} // end of class Request
+
+	// auxiliary functions
+	/**
+	 * @return The query parameters of a GET request, null if the request was
+	 *         answered with an error.
+	 */
+	private static Map<String, String> query(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("GET")) {
+			exchange.getResponseHeaders().set("Allow", "GET");
+			sendError(exchange, 405, "Only GET is supported.");
+			return null;
+		}
+		Map<String, String> query = new HashMap<String, String>();
+		String raw = exchange.getRequestURI().getRawQuery();
+		if (raw == null)
+			return query;
+		for (String pair : raw.split("&")) {
+			if (pair.isEmpty())
+				continue;
+			int eq = pair.indexOf('=');
+			String key = eq < 0 ? pair : pair.substring(0, eq);
+			String value = eq < 0 ? "" : pair.substring(eq + 1);
+			query.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+		}
+		return query;
+	} // end of query()
+
+	private static int intParam(Map<String, String> query, String name, int defaultValue) {
+		String value = query.get(name);
+		return value == null ? defaultValue : parseInt(value, name);
+	} // end of intParam()
+
+	private static int parseInt(String value, String name) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " must be an integer.");
+		}
+	} // end of parseInt()
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte body[]) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	} // end of send()
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+	} // end of sendError()
+
+} // end of class MazeServer
@@ -23,12 +23,20 @@ class MazeTester {
 	 */
 	protected static final PrintStream outStream = System.out;
 
+	/**
+	 * Frames per second at which solver footprints are drawn when visualising.
+	 */
+	protected static final int ftPrtFrameRate = 30;
+
 	/**
 	 * Print help/usage message.
 	 */
 	public static void usage(String progName) {
-		System.err.println(progName + ": [input fileName] <visualize maze>");
+		System.err.println(progName + ": [input fileName] <visualize maze> <seed> <stats file>");
 		System.err.println("<visualize maze> = <y | n>");
+		System.err.println("<seed> = seed of the generator, default the current time");
+		System.err.println("<stats file> = file the timings and counters of every phase are appended to as a line");
+		System.err.println("               of JSON, '-' for standard output");
 		System.exit(1);
 	} // end of usage()
 
@@ -37,11 +45,12 @@ class MazeTester {
 	 * 
 	 * @param args
 	 *            Two arguments which are input filename and "y/n" indicating
-	 *            whether to visualize the maze.
+	 *            whether to visualize the maze, optionally followed by the
+	 *            seed of the generator and the stats file.
 	 */
 	public static void main(String[] args) {
 		// read command line arguments
-		if (args.length != 2) {
+		if (args.length < 2 || args.length > 4) {
 			System.err.println("Incorrect number of arguments.");
 			usage(progName);
 		}
@@ -64,48 +73,44 @@ class MazeTester {
 			usage(progName);
 		}
 
-		// default values for parameters
-		String mazeType = "normal";
-		String mazeGeneratorName = "recurBack";
-		String mazeSolverName = "wallFollower";
-		int rowNum = 30;
-		int colNum = 30;
-		int entR = 0;
-		int entC = 0;
-		int exitR = 0;
-		int exitC = 1;
-		List<int[]> tunnelList = new ArrayList<int[]>();
+		// the same seed reproduces the same maze
+		long seed = System.currentTimeMillis();
+		if (args.length >= 3) {
+			try {
+				seed = Long.parseLong(args[2]);
+			} catch (NumberFormatException e) {
+				System.err.println("Seed must be an integer.");
+				usage(progName);
+			}
+		}
 
-		File fin = new File(fName);
+		// timings and counters of every phase
+		String statsName = args.length == 4 ? args[3] : null;
+		MazeStats stats = new MazeStats();
 
 		// read input parameter file
+		MazeParameters params = null;
 		try {
-			Scanner scanner = new Scanner(fin);
-			mazeType = scanner.next();
-
-			mazeGeneratorName = scanner.next();
-			mazeSolverName = scanner.next();
-
-			rowNum = Integer.parseInt(scanner.next());
-			colNum = Integer.parseInt(scanner.next());
-
-			entR = Integer.parseInt(scanner.next());
-			entC = Integer.parseInt(scanner.next());
-			exitR = Integer.parseInt(scanner.next());
-			exitC = Integer.parseInt(scanner.next());
-
-			// add tunnels
-			while (scanner.hasNext()) {
-				int temp[] = { Integer.parseInt(scanner.next()), Integer.parseInt(scanner.next()),
-						Integer.parseInt(scanner.next()), Integer.parseInt(scanner.next()) };
-				tunnelList.add(temp);
-			}
-			scanner.close();
+			params = MazeParameters.parse(new File(fName));
 		} catch (FileNotFoundException e) {
 			System.err.println("Input file doesn't exist.");
 			usage(progName);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			usage(progName);
 		}
 
+		String mazeType = params.mazeType;
+		String mazeGeneratorName = params.mazeGeneratorName;
+		String mazeSolverName = params.mazeSolverName;
+		int rowNum = params.rowNum;
+		int colNum = params.colNum;
+		int entR = params.entR;
+		int entC = params.entC;
+		int exitR = params.exitR;
+		int exitC = params.exitC;
+		List<int[]> tunnelList = params.tunnelList;
+
 		// check rowNum and colNum
 		if (rowNum < 1 || colNum < 1) {
 			System.err.println("Row or column number of maze must be at least 1.");
@@ -114,23 +119,31 @@ class MazeTester {
 
 		// construct maze object
 		Maze maze = null;
-		switch (mazeType) {
-		case "normal":
-			maze = new NormalMaze();
-			break;
-		case "tunnel":
-			maze = new TunnelMaze();
-			break;
-		case "hex":
-			maze = new HexMaze();
-			break;
-		default:
-			System.err.println("Unknown maze type.");
+		try {
+			maze = Maze.forType(mazeType);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
 			usage(progName);
 		}
 
+		stats.put("file", fName);
+		stats.put("type", mazeType);
+		stats.put("generator", mazeGeneratorName);
+		stats.put("solver", mazeSolverName);
+		stats.put("rows", rowNum);
+		stats.put("columns", colNum);
+		stats.put("seed", seed);
+
 		// initialise maze
-		maze.initMaze(rowNum, colNum, entR, entC, exitR, exitC, tunnelList);
+		stats.start("initMaze");
+		try {
+			maze.initMaze(rowNum, colNum, entR, entC, exitR, exitC, tunnelList);
+		} catch (IllegalArgumentException e) {
+			// e.g. a cell at the end of two tunnels
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+		stats.stop(null);
 
 		// check if maze entrance or exit is valid
 		if (!maze.isOnEdge(entR, entC) || !maze.isOnEdge(exitR, exitC)) {
@@ -140,61 +153,63 @@ class MazeTester {
 
 		// determine which implementation to test
 		MazeGenerator mazeGen = null;
-		switch (mazeGeneratorName) {
-		case "modiPrim":
-			mazeGen = new ModifiedPrimsGenerator();
-			break;
-		case "recurBack":
-			mazeGen = new RecursiveBacktrackerGenerator();
-			break;
-		case "growingTree":
-			mazeGen = new GrowingTreeGenerator();
-			break;
-		default:
-			System.err.println("Unknown maze generator name.");
+		try {
+			mazeGen = MazeGenerator.forName(mazeGeneratorName);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
 			usage(progName);
 		}
 
-		outStream.println(mazeGen.getClass().getSimpleName() + " is generating the maze.");
+		outStream.println(mazeGen.getClass().getSimpleName() + " is generating the maze with seed " + seed + ".");
 
 		// generate maze
-		mazeGen.generateMaze(maze);
+		stats.start("generateMaze");
+		try {
+			mazeGen.generateMaze(maze, seed);
+		} catch (IllegalArgumentException e) {
+			// e.g. a generator that does not support the maze type
+			System.err.println(e.getMessage());
+			usage(progName);
+		}
+		stats.stop(maze.counters);
 
 		// update whether maze should be visualised
 		maze.isVisu = isVisu;
 
 		// check if maze is perfect
+		stats.start("isPerfect");
 		boolean isPerfectMaze = maze.isPerfect();
+		stats.stop(null);
+		stats.put("perfect", isPerfectMaze);
 
 		outStream.println("The maze is " + (isPerfectMaze ? "" : "not ") + "perfect!");
 
 		// draw maze (this depends on maze.isVisu)
+		stats.start("draw");
 		maze.draw();
+		stats.stop(null);
+
+		// batch footprints so drawing is bounded by frame rate, not cell count
+		if (isVisu)
+			maze.setFtPrtFrameRate(ftPrtFrameRate);
 
 		// solve the generated maze if perfect
 		if (isPerfectMaze) {
 			MazeSolver mazeSolver = null;
-			switch (mazeSolverName) {
-			case "wallFollower":
-				mazeSolver = new WallFollowerSolver();
-				break;
-			case "biDirrecurBack":
-				mazeSolver = new BiDirectionalRecursiveBacktrackerSolver();
-				break;
-			// sample solver to help you get started
-			case "sample":
-				mazeSolver = new SampleSolver();
-				break;
-			// no solver
-			case "none":
-				break;
-			default:
-				System.err.println("Unknown maze solver name.");
+			try {
+				mazeSolver = MazeSolver.forName(mazeSolverName);
+			} catch (IllegalArgumentException e) {
+				System.err.println(e.getMessage());
 				usage(progName);
 			}
 
 			if (mazeSolver != null) {
+				stats.start("solveMaze");
 				mazeSolver.solveMaze(maze);
+				maze.flushFtPrt();
+				stats.stop(maze.counters);
+				stats.put("solved", mazeSolver.isSolved());
+				stats.put("cellsExplored", mazeSolver.cellsExplored());
 				outStream.println(mazeSolver.getClass().getSimpleName() + " is solving the maze.");
 				// check if solver can get out of maze
 				if (mazeSolver.isSolved()) {
@@ -203,12 +218,36 @@ class MazeTester {
 					outStream.println("Number of cells visited = " + mazeSolver.cellsExplored());
 					// show results from validation
 					outStream.println("Validation result:");
+					stats.start("validate");
 					boolean isValid = maze.validate();
+					stats.stop(null);
+					stats.put("valid", isValid);
 					outStream.println("The solution is " + (isValid ? "" : "not ") + "valid!");
 				} else {
 					outStream.println("Solver was failed!");
 				}
 			}
 		}
+
+		if (statsName != null)
+			writeStats(stats, statsName);
 	} // end of main()
+
+	/**
+	 * Append the stats of the run as a line of JSON.
+	 *
+	 * @param fName
+	 *            File to append to, "-" for the standard outstream.
+	 */
+	protected static void writeStats(MazeStats stats, String fName) {
+		if (fName.equals("-")) {
+			outStream.println(stats.toJson());
+			return;
+		}
+		try (PrintStream out = new PrintStream(new FileOutputStream(fName, true))) {
+			out.println(stats.toJson());
+		} catch (IOException e) {
+			System.err.println("Can not write " + fName + ": " + e.getMessage());
+		}
+	} // end of writeStats()
 } // end of class MazeTester
@@ -1,8 +1,6 @@
 package maze;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 /**
  * Class of hexagon maze.
@@ -24,6 +22,18 @@ public class HexMaze extends NormalMaze {
 	} // end of isIn()
 	
 	
+	@Override
+	protected int firstCol(int r) {
+		return (r + 1) / 2;
+	} // end of firstCol()
+	
+	
+	@Override
+	protected boolean hasDir(int dir) {
+		return true;
+	} // end of hasDir()
+	
+	
 	@Override
 	public boolean isOnEdge(int r, int c) {
 		return isIn(r, c + (r + 1) / 2) && (r == 0 || r == sizeR - 1 || c == 0 || c == sizeC - 1);
@@ -36,10 +46,11 @@ public class HexMaze extends NormalMaze {
 		sizeR = rs;
 		sizeC = cs;
 		sizeTunnel = tunnelList.size();
+		tunnels = indexTunnels(tunnelList);
 		
-		// set up map matrix
+		// set up map matrix, cells of a lazy maze are built on first access
 		map = new Cell[sizeR][sizeC + (sizeR + 1) / 2];
-		for (int i = 0; i < sizeR; i++){
+		for (int i = 0; i < sizeR && !isLazy; i++){
 			for (int j = (i + 1) / 2; j < sizeC + (i + 1) / 2; j++) {
 				if (!isIn(i, j))
 					continue;
@@ -63,49 +74,16 @@ public class HexMaze extends NormalMaze {
 		
 		// set up entrance and exit
 		if (isIn(entR, entC + (entR + 1) / 2))
-			entrance = map[entR][entC + (entR + 1) / 2];
+			entrance = cellAt(entR, entC + (entR + 1) / 2);
 		if (isIn(exitR, exitC + (exitR + 1) / 2))
-			exit = map[exitR][exitC + (exitR + 1) / 2];
+			exit = cellAt(exitR, exitC + (exitR + 1) / 2);
 
-                // set up recording matrix for validation
-                isRecorded = new boolean[sizeR][sizeC + (sizeR + 1) / 2];
+		// set up recording array for validation
+		isRecorded = new boolean[sizeR * sizeC];
+		walls = null;
 	} // end of initMaze()
 	
 	
-	@Override
-	public boolean isPerfect() {
-		boolean visited[][] = new boolean[sizeR][sizeC];
-		Queue<Cell> queue = new LinkedList<Cell>();
-		
-		queue.add(entrance);
-		
-		while (!queue.isEmpty()) {
-			Cell currCell = queue.poll();
-			visited[currCell.r][currCell.c - (currCell.r + 1) / 2] = true;
-			int visitedNeigh = 0;
-			for (int i = 0; i < NUM_DIR; i++) {
-				Cell nextCell = currCell.neigh[i];
-				if (!isIn(nextCell) || currCell.wall[i].present)
-					continue;
-				if (visited[nextCell.r][nextCell.c - (nextCell.r + 1) / 2])
-					visitedNeigh += 1; 
-				else
-					queue.add(nextCell);
-			}
-			
-			if (visitedNeigh > 1)
-				return false;
-		}
-		
-		for (int i = 0; i < sizeR; i++)
-			for (int j = 0; j < sizeC; j++)
-				if (!visited[i][j])
-					return false;
-		
-		return true;
-	} // end of isPerfect()
-	
-	
 	@Override
 	public void draw() {
 		// draw nothing if visualization is switched off
@@ -115,13 +93,13 @@ public class HexMaze extends NormalMaze {
 		for (int i = 0; i < sizeR; i++)
 			for (int j = (i + 1) / 2; j < sizeC + (i + 1) / 2; j++)
 				for (int k = 0; k < NUM_DIR; k++) {
-					if (map[i][j].wall[k] != null)
+					if (cellAt(i, j).wall[k] != null)
 						map[i][j].wall[k].drawn = false;
 				}
 		
 
 		for (int k = 0; k < NUM_DIR; k++) {
-			if (entrance.neigh[k] == null) {
+			if (neighbour(entrance, k) == null) {
 				entrance.wall[k].drawn = true;
 				break;
 			}
@@ -129,7 +107,7 @@ public class HexMaze extends NormalMaze {
 		
 
 		for (int k = 0; k < NUM_DIR; k++) {
-			if (exit.neigh[k] == null) {
+			if (neighbour(exit, k) == null) {
 				exit.wall[k].drawn = true;
 				break;
 			}
@@ -172,69 +150,9 @@ public class HexMaze extends NormalMaze {
 	
 	
 	@Override
-	public void drawFtPrt(Cell cell) {
-                // record every cell drawn
-                isRecorded[cell.r][cell.c] = true;
-
-		// draw nothing if visualization is switched off
-		if (!isVisu)
-			return;
-		
-		StdDraw.setPenColor(StdDraw.GRAY);
-		StdDraw.filledCircle(cell.r % 2 * 0.5 + cell.c - (cell.r + 1) / 2 + 0.5, cell.r + 0.5, 0.25);
-	} // end of drawFtPrt()
+	protected double centreX(int r, int c) {
+		return r % 2 * 0.5 + c - (r + 1) / 2 + 0.5;
+	} // end of centreX()
 	
 
-        @Override
-        public boolean validate() {
-                boolean isValid = true;
-                int pathLength = 0;
-                int count = 0;
-
-                int stepCount[][] = new int[sizeR][sizeC + (sizeR + 1) / 2];
-                Queue<Cell> queue = new LinkedList<Cell>();
-
-                queue.add(entrance);
-                stepCount[entrance.r][entrance.c] = 1;
-
-                while (!queue.isEmpty()) {
-                        Cell cell = queue.poll();
-                        count++;
-                        int step = stepCount[cell.r][cell.c];
-
-                        for (int i = 0; i < Maze.NUM_DIR; i++) {
-                                Cell next = cell.neigh[i];
-                                if (next != null && !cell.wall[i].present && isRecorded[next.r][next.c] && stepCount[next.r][next.c] == 0) {
-                                        stepCount[next.r][next.c] = step + 1;
-                                        queue.add(next);
-                                }
-                        }
-                }
-
-                if (stepCount[exit.r][exit.c] == 0) {
-                        isValid = false;
-                        System.out.println("[Validation] Exit is not reached.");
-                }
-                else {
-                        pathLength = stepCount[exit.r][exit.c];
-                }
-
-                for (int i = 0; i < sizeR; i++){
-                        for (int j = 0; j < sizeC + (sizeR + 1) / 2; j++) {
-                                if (isValid && isRecorded[i][j] && stepCount[i][j] == 0) {
-                                        isValid = false;
-                                        System.out.println("[Validation] Visited cell not reachable.");
-                                }
-                        }
-                }
-
-                if (isValid) {
-                        System.out.println("[Validation] Number of cells visited = " + count);
-                        System.out.println("[Validation] Path length of the solution = " + pathLength);
-                }
-
-                return isValid;
-        } // end of validate()
-
-
 } // end of class HexMaze
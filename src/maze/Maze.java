@@ -12,7 +12,9 @@ import java.util.List;
  *         that: all cells are stored in matrix map[][], map[r][c].r == r and
  *         map[r][c].c == c, all neighbour cell objects are assigned correctly
  *         for each cell, and same wall object are shared by two cell objects
- *         next to the wall
+ *         next to the wall. A lazy maze (isLazy) builds cells on first
+ *         access, so code working on one reaches cells through cellAt() and
+ *         neighbour() rather than map[][] and Cell.neigh[]
  */
 public abstract class Maze {
 
@@ -47,10 +49,48 @@ public abstract class Maze {
 	public int sizeR;
 	public int sizeC;
 	public int sizeTunnel;
+	/**
+	 * Tunnels of the maze by cell id, empty if the maze has none
+	 */
+	public TunnelIndex tunnels;
 	public Cell map[][] = null;
 	public Cell entrance;
 	public Cell exit;
 	public boolean isVisu = true;
+	public boolean isVerbose = true;
+
+	/**
+	 * If set before initMaze(), cells and walls are only built when first
+	 * reached through cellAt() or neighbour()
+	 */
+	public boolean isLazy = false;
+
+	/**
+	 * Work done on the maze by generators and solvers
+	 */
+	public final MazeCounters counters = new MazeCounters(this);
+
+	/**
+	 * Construct an empty maze of the type named in parameter files.
+	 * 
+	 * @param mazeType
+	 *            "normal", "tunnel" or "hex".
+	 * @return A maze to be initialised by initMaze().
+	 * @throws IllegalArgumentException
+	 *             if the type is unknown.
+	 */
+	public static Maze forType(String mazeType) {
+		switch (mazeType) {
+		case "normal":
+			return new NormalMaze();
+		case "tunnel":
+			return new TunnelMaze();
+		case "hex":
+			return new HexMaze();
+		default:
+			throw new IllegalArgumentException("Unknown maze type.");
+		}
+	} // end of forType()
 
 	/**
 	 * To test whether the input entrance and exit locations are valid.
@@ -85,6 +125,86 @@ public abstract class Maze {
 	 */
 	public abstract void initMaze(int rs, int cs, int entR, int entC, int exitR, int exitC, List<int[]> tunnelList);
 
+	/**
+	 * Get the cell at a position of map[][], building it first in a lazy
+	 * maze.
+	 * 
+	 * @param r
+	 *            Row of the cell.
+	 * @param c
+	 *            Column of the cell in map[r].
+	 * @return The cell, null if the position is outside the maze.
+	 */
+	public abstract Cell cellAt(int r, int c);
+
+	/**
+	 * Get the dense id of the cell at a position of map[][]. Ids run from 0
+	 * to sizeR * sizeC - 1 row by row, so arrays indexed by id hold no
+	 * padding, even for hex mazes whose rows are shifted in map[][].
+	 * 
+	 * @param r
+	 *            Row of the cell.
+	 * @param c
+	 *            Column of the cell in map[r].
+	 * @return The id of the cell.
+	 */
+	public abstract int cellId(int r, int c);
+
+	/**
+	 * Get the dense id of a cell, see cellId(int, int).
+	 * 
+	 * @param cell
+	 *            A cell of this maze.
+	 * @return The id of the cell.
+	 */
+	public int cellId(Cell cell) {
+		return cellId(cell.r, cell.c);
+	} // end of cellId()
+
+	/**
+	 * Get the cell with an id, building it first in a lazy maze.
+	 * 
+	 * @param id
+	 *            Id of the cell, see cellId(int, int).
+	 * @return The cell.
+	 */
+	public abstract Cell cellAt(int id);
+
+	/**
+	 * Number of cells of the maze, one more than the largest cell id.
+	 * 
+	 * @return sizeR * sizeC.
+	 */
+	public int numCells() {
+		return sizeR * sizeC;
+	} // end of numCells()
+
+	/**
+	 * Mark every cell built so far as not visited.
+	 */
+	public abstract void resetVisited();
+
+	/**
+	 * Restore the maze to the all-wall state initMaze() left it in, reusing
+	 * its cells and walls, so the same maze can be generated again with
+	 * another seed. Entrance, exit and tunnels are kept.
+	 *
+	 * @throws IllegalStateException
+	 *             if the maze is lazy.
+	 */
+	public abstract void reset();
+
+	/**
+	 * Get the neighbour of a cell, building it first in a lazy maze.
+	 * 
+	 * @param cell
+	 *            A cell of this maze.
+	 * @param dir
+	 *            Direction of the neighbour.
+	 * @return The neighbour, null if there is no cell in that direction.
+	 */
+	public abstract Cell neighbour(Cell cell, int dir);
+
 	/**
 	 * Check whether the maze is a perfect maze
 	 * 
@@ -106,6 +226,22 @@ public abstract class Maze {
 	 */
 	public abstract void drawFtPrt(Cell cell);
 
+	/**
+	 * Switch footprint batching on or off. When on, drawFtPrt(Cell) buffers
+	 * footprints and draws them in one frame at most frameRate times a
+	 * second, so visual runs are bounded by the frame rate rather than by the
+	 * number of cells visited.
+	 * 
+	 * @param frameRate
+	 *            Frames per second, 0 to draw every footprint straight away.
+	 */
+	public abstract void setFtPrtFrameRate(int frameRate);
+
+	/**
+	 * Draw any footprints still buffered by drawFtPrt(Cell).
+	 */
+	public abstract void flushFtPrt();
+
 	/**
 	 * Show validation result of whether the maze is solved
 	 */
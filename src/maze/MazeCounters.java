@@ -0,0 +1,123 @@
+package maze;
+
+/**
+ * Work counters of the algorithms run on a maze: walls removed, cells added
+ * to and taken from a stack, queue or frontier set, and the largest size the
+ * frontier reached. Generators and solvers update the counters of the maze
+ * they work on (Maze.counters). They are plain fields, so counting only costs
+ * an increment and can be left on. Every MazeRecording.STEP_INTERVAL cells
+ * pushed, a MazeStepEvent is committed if a flight recording enables it.
+ * <p>
+ * A WallListener can follow a maze while it is generated. Steppers report
+ * every wall they remove; walls removed by several threads at once or as
+ * whole rows of bits are only counted.
+ *
+ * @author Lettisia George
+ */
+public class MazeCounters {
+
+	/**
+	 * Told of every wall a generator stepper removes, on the thread stepping.
+	 */
+	public interface WallListener {
+		/**
+		 * @param cell
+		 *            One of the two cells the wall was between.
+		 * @param dir
+		 *            Direction of the wall from the cell.
+		 */
+		void wallRemoved(Cell cell, int dir);
+	} // end of interface WallListener
+
+	public long wallsRemoved = 0;
+	public long cellsPushed = 0;
+	public long cellsPopped = 0;
+	public long peakFrontier = 0;
+
+	private final Maze maze;
+
+	/**
+	 * Sample of the steps since the last one, null if not recorded
+	 */
+	private MazeStepEvent step = null;
+
+	/**
+	 * Listener of removed walls, null if none
+	 */
+	private WallListener wallListener = null;
+
+	public MazeCounters(Maze maze) {
+		this.maze = maze;
+	} // end of MazeCounters()
+
+	/**
+	 * Count a cell added to the frontier.
+	 * 
+	 * @param cell
+	 *            The cell added.
+	 * @param size
+	 *            Size of the frontier after the cell was added.
+	 */
+	public void push(Cell cell, int size) {
+		cellsPushed++;
+		if (size > peakFrontier)
+			peakFrontier = size;
+		if ((cellsPushed - 1) % MazeRecording.STEP_INTERVAL == 0)
+			sampleStep(cell, size);
+	} // end of push()
+
+	/**
+	 * Count a wall removed and report it to the wall listener.
+	 * 
+	 * @param cell
+	 *            One of the two cells the wall was between.
+	 * @param dir
+	 *            Direction of the wall from the cell.
+	 */
+	public void removeWall(Cell cell, int dir) {
+		wallsRemoved++;
+		if (wallListener != null)
+			wallListener.wallRemoved(cell, dir);
+	} // end of removeWall()
+
+	/**
+	 * Count a cell taken from the frontier.
+	 */
+	public void pop() {
+		cellsPopped++;
+	} // end of pop()
+
+	/**
+	 * @param listener
+	 *            Listener of the walls removed from now on, null for none.
+	 */
+	public void setWallListener(WallListener listener) {
+		wallListener = listener;
+	} // end of setWallListener()
+
+	public void reset() {
+		wallsRemoved = 0;
+		cellsPushed = 0;
+		cellsPopped = 0;
+		peakFrontier = 0;
+		step = null;
+	} // end of reset()
+
+	// auxiliary functions
+	/**
+	 * Commit the current sample of steps and start the next one.
+	 */
+	private void sampleStep(Cell cell, int size) {
+		if (step != null)
+			step.finish(maze, cell, size);
+		step = null;
+		if (!MazeRecording.isActive())
+			return;
+		step = new MazeStepEvent();
+		if (step.isEnabled())
+			step.begin();
+		else
+			step = null;
+	} // end of sampleStep()
+
+} // end of class MazeCounters
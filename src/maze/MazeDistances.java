@@ -0,0 +1,373 @@
+package maze;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Distance fields of a maze: the number of moves from the nearest of a set of
+ * source cells to every cell, e.g. for heat maps of the distance from the
+ * entrance. Moves go through open walls and tunnels. All the sources are
+ * searched from in one breadth first search, and the distances are returned
+ * as a flat array indexed by cell id.
+ * <p>
+ * The search is level synchronous and direction optimising. Levels are
+ * expanded top down, from a queue of the frontier cells; levels of fewer than
+ * PARALLEL_CELLS cells on the calling thread, which suits the long narrow
+ * frontiers of most mazes, and larger ones split across the common fork/join
+ * pool, cells being claimed with a compare and set on their distance. When
+ * the frontier holds a large part of the cells not reached yet (many
+ * sources, or a wide open maze), levels are expanded bottom up instead: every
+ * cell not reached yet looks for a neighbour in a bitmap of the frontier.
+ * Every thread then writes only the cells of its own words of the bitmap, so
+ * no atomic updates are needed.
+ *
+ * @author Lettisia George
+ */
+public class MazeDistances {
+
+	/**
+	 * Distance of cells no source can reach
+	 */
+	public static final int UNREACHED = -1;
+
+	/**
+	 * Levels with fewer cells are expanded on the calling thread
+	 */
+	public static final int PARALLEL_CELLS = 1 << 13;
+
+	/**
+	 * Go bottom up once the frontier is more than 1 / ALPHA of the cells not
+	 * reached yet, and back top down once it is less than 1 / BETA of all the
+	 * cells
+	 */
+	private static final int ALPHA = 14;
+	private static final int BETA = 24;
+
+	/**
+	 * Frontier cells, and words of the frontier bitmap, expanded per task
+	 */
+	private static final int TASK_CELLS = 1 << 11;
+	private static final int TASK_WORDS = 1 << 6;
+
+	/**
+	 * Bits of open[]: bits 0 to NUM_DIR - 1 are set if the wall in that
+	 * direction is open
+	 */
+	private static final int TUNNEL = 1 << Maze.NUM_DIR;
+	private static final int ODD_ROW = 1 << Maze.NUM_DIR + 1;
+
+	private static final VarHandle DIST = MethodHandles.arrayElementVarHandle(int[].class);
+
+	private final MazeFile maze;
+	private final int numCells;
+	/**
+	 * Open walls and tunnel of every cell, by cell id
+	 */
+	private final byte open[];
+	/**
+	 * Difference between the id of a neighbour and the id of the cell, by row
+	 * parity and direction
+	 */
+	private final int delta[][] = new int[2][Maze.NUM_DIR];
+
+	// state of the current search: the distances, the frontier of the level
+	// being expanded as a queue or a bitmap, and the queue the next level is
+	// collected in
+	private int dist[];
+	private Cells frontier;
+	private Cells next;
+	private long bits[];
+	private int count;
+
+	/**
+	 * Index the open walls and tunnels of a maze, to search it any number of
+	 * times.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the maze has 2^31 - 64 cells or more.
+	 */
+	MazeDistances(MazeFile maze) {
+		if (maze.numCells() > Integer.MAX_VALUE - Long.SIZE)
+			throw new IllegalArgumentException("Distance fields hold at most 2^31 - 65 cells.");
+		this.maze = maze;
+		numCells = (int) maze.numCells();
+		open = new byte[numCells];
+
+		// change of row and (unshifted) column of every neighbour
+		int deltaC[][] = new int[2][Maze.NUM_DIR];
+		for (int parity = 0; parity < 2; parity++)
+			for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+				int nr = parity + Maze.deltaR[dir];
+				deltaC[parity][dir] = MazeFile.colOf(maze.type, nr,
+						MazeFile.mapColOf(maze.type, parity, 0) + Maze.deltaC[dir]);
+				delta[parity][dir] = Maze.deltaR[dir] * maze.sizeC + deltaC[parity][dir];
+			}
+
+		// read the wall bits directly, row by row, rather than through
+		// isWallPresent(), which finds the row and column of the cell again
+		// for every wall
+		int bitsPerCell = maze.bitsPerCell;
+		IntStream.range(0, maze.sizeR).parallel().forEach(r -> {
+			int parity = r & 1;
+			for (int c = 0; c < maze.sizeC; c++) {
+				int id = r * maze.sizeC + c;
+				int cell = parity != 0 ? ODD_ROW : 0;
+				for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+					int nr = r + Maze.deltaR[dir];
+					int nc = c + deltaC[parity][dir];
+					if (nr < 0 || nr >= maze.sizeR || nc < 0 || nc >= maze.sizeC
+							|| maze.type != Maze.HEX && (dir == Maze.NORTHEAST || dir == Maze.SOUTHWEST))
+						continue;
+					int slot = MazeFile.slotOf(maze.type, dir);
+					long bit = slot >= 0 ? (long) id * bitsPerCell + slot
+							: (long) (id + delta[parity][dir]) * bitsPerCell
+									+ MazeFile.slotOf(maze.type, Maze.oppoDir[dir]);
+					if (!maze.getBit(bit))
+						cell |= 1 << dir;
+				}
+				open[id] = (byte) cell;
+			}
+		});
+		for (int i = 0; i < maze.tunnels.length; i += 2)
+			open[(int) maze.cellId(maze.tunnels[i], maze.tunnels[i + 1])] |= TUNNEL;
+	} // end of MazeDistances()
+
+	/**
+	 * Distances in a maze built of Cell objects.
+	 *
+	 * @param maze
+	 *            Initialised maze.
+	 * @param sources
+	 *            Ids of the source cells, see Maze.cellId(int, int).
+	 * @return Distance of every cell from the nearest source by cell id,
+	 *         UNREACHED if no source can reach it.
+	 */
+	public static int[] compute(Maze maze, int... sources) {
+		long ids[] = new long[sources.length];
+		for (int i = 0; i < sources.length; i++)
+			ids[i] = sources[i];
+		try {
+			return compute(MazeFile.decode(MazeFile.encode(maze)), ids);
+		} catch (IOException e) {
+			// a maze just encoded always decodes
+			throw new UncheckedIOException(e);
+		}
+	} // end of compute()
+
+	/**
+	 * Distances in a maze file, or an OffHeapMaze of at most 2^31 - 65 cells.
+	 *
+	 * @param sources
+	 *            Ids of the source cells, see MazeFile.cellId(int, int).
+	 * @return Distance of every cell from the nearest source by cell id,
+	 *         UNREACHED if no source can reach it.
+	 * @throws IllegalArgumentException
+	 *             if a source is not a cell of the maze.
+	 */
+	public static int[] compute(MazeFile maze, long... sources) {
+		return new MazeDistances(maze).search(sources);
+	} // end of compute()
+
+	/**
+	 * @return Number of cells of the maze.
+	 */
+	int numCells() {
+		return numCells;
+	} // end of numCells()
+
+	/**
+	 * @return Passages out of a cell: bit dir is set if the wall in direction
+	 *         dir is open, bit NUM_DIR if the cell is a tunnel end.
+	 */
+	int passages(int id) {
+		return open[id] & (1 << Maze.NUM_DIR + 1) - 1;
+	} // end of passages()
+
+	/**
+	 * @param dir
+	 *            Direction of a passage out of the cell, NUM_DIR for its
+	 *            tunnel.
+	 * @return Id of the cell the passage leads to.
+	 */
+	int neighbour(int id, int dir) {
+		if (dir == Maze.NUM_DIR)
+			return (int) maze.tunnel(id);
+		return id + delta[(open[id] & ODD_ROW) != 0 ? 1 : 0][dir];
+	} // end of neighbour()
+
+	/**
+	 * Breadth first search from all the sources at once.
+	 *
+	 * @return A new array of the distances, see compute(MazeFile, long...).
+	 */
+	int[] search(long sources[]) {
+		dist = new int[numCells];
+		frontier = new Cells();
+		next = new Cells();
+		Arrays.fill(dist, UNREACHED);
+		for (long source : sources) {
+			if (source < 0 || source >= numCells)
+				throw new IllegalArgumentException("Source " + source + " is not a cell of the maze.");
+			if (dist[(int) source] == UNREACHED) {
+				dist[(int) source] = 0;
+				frontier.add((int) source);
+			}
+		}
+		count = frontier.size;
+
+		long unreached = numCells - count;
+		boolean isBottomUp = false;
+		for (int level = 1; count > 0; level++) {
+			if (!isBottomUp && count >= PARALLEL_CELLS && (long) count * ALPHA > unreached) {
+				toBitmap();
+				isBottomUp = true;
+			} else if (isBottomUp && (long) count * BETA < numCells) {
+				toQueue();
+				isBottomUp = false;
+			}
+
+			if (isBottomUp) {
+				bottomUp(level);
+			} else {
+				next.size = 0;
+				if (count < PARALLEL_CELLS)
+					expand(0, count, level, false, next);
+				else
+					parallelTopDown(level);
+				Cells reached = next;
+				next = frontier;
+				frontier = reached;
+				count = frontier.size;
+			}
+			unreached -= count;
+		}
+		int result[] = dist;
+		dist = null;
+		frontier = null;
+		next = null;
+		bits = null;
+		return result;
+	} // end of search()
+
+	/**
+	 * Reach the cells next to the frontier cells from to to - 1.
+	 *
+	 * @param isShared
+	 *            True if other threads expand the same level, cells are then
+	 *            claimed atomically.
+	 * @param found
+	 *            The cells reached, at distance level, are added to it.
+	 */
+	private void expand(int from, int to, int level, boolean isShared, Cells found) {
+		for (int i = from; i < to; i++) {
+			int id = frontier.ids[i];
+			int cell = open[id] & 0xFF;
+			int step[] = delta[(cell & ODD_ROW) != 0 ? 1 : 0];
+			for (int dir = 0; dir <= Maze.NUM_DIR; dir++) {
+				if ((cell & 1 << dir) == 0)
+					continue;
+				int next = dir == Maze.NUM_DIR ? (int) maze.tunnel(id) : id + step[dir];
+				if (isShared ? DIST.compareAndSet(dist, next, UNREACHED, level) : dist[next] == UNREACHED) {
+					dist[next] = level;
+					found.add(next);
+				}
+			}
+		}
+	} // end of expand()
+
+	private void parallelTopDown(int level) {
+		Cells found[] = IntStream.range(0, tasks(count, TASK_CELLS)).parallel().mapToObj(task -> {
+			Cells part = new Cells();
+			expand(task * TASK_CELLS, Math.min(count, (task + 1) * TASK_CELLS), level, true, part);
+			return part;
+		}).toArray(Cells[]::new);
+		for (Cells part : found)
+			next.addAll(part);
+	} // end of parallelTopDown()
+
+	/**
+	 * Reach every cell not reached yet that has a neighbour in the frontier
+	 * bitmap, each task owning TASK_WORDS words of the new bitmap.
+	 */
+	private void bottomUp(int level) {
+		long next[] = new long[bits.length];
+		count = (int) IntStream.range(0, tasks(bits.length, TASK_WORDS)).parallel().mapToLong(task -> {
+			long n = 0;
+			int end = Math.min(bits.length, (task + 1) * TASK_WORDS);
+			for (int word = task * TASK_WORDS; word < end; word++) {
+				long reached = 0;
+				int last = Math.min(Long.SIZE, numCells - word * Long.SIZE);
+				for (int i = 0; i < last; i++) {
+					int id = word * Long.SIZE + i;
+					if (dist[id] == UNREACHED && hasFrontierNeighbour(id)) {
+						dist[id] = level;
+						reached |= 1L << i;
+						n++;
+					}
+				}
+				next[word] = reached;
+			}
+			return n;
+		}).sum();
+		bits = next;
+	} // end of bottomUp()
+
+	private boolean hasFrontierNeighbour(int id) {
+		int cell = open[id] & 0xFF;
+		int step[] = delta[(cell & ODD_ROW) != 0 ? 1 : 0];
+		for (int dir = 0; dir <= Maze.NUM_DIR; dir++) {
+			if ((cell & 1 << dir) == 0)
+				continue;
+			int next = dir == Maze.NUM_DIR ? (int) maze.tunnel(id) : id + step[dir];
+			if ((bits[next >>> 6] & 1L << next) != 0)
+				return true;
+		}
+		return false;
+	} // end of hasFrontierNeighbour()
+
+	private void toBitmap() {
+		bits = new long[tasks(numCells, Long.SIZE)];
+		for (int i = 0; i < count; i++)
+			bits[frontier.ids[i] >>> 6] |= 1L << frontier.ids[i];
+	} // end of toBitmap()
+
+	private void toQueue() {
+		frontier.size = 0;
+		for (int word = 0; word < bits.length; word++)
+			for (long left = bits[word]; left != 0; left &= left - 1)
+				frontier.add(word * Long.SIZE + Long.numberOfTrailingZeros(left));
+	} // end of toQueue()
+
+	/**
+	 * @return Number of tasks of size items to cover n items.
+	 */
+	private static int tasks(long n, int size) {
+		return (int) ((n + size - 1) / size);
+	} // end of tasks()
+
+	/**
+	 * Growable list of cell ids.
+	 */
+	private static class Cells {
+		int ids[] = new int[16];
+		int size = 0;
+
+		void add(int id) {
+			if (size == ids.length)
+				ids = Arrays.copyOf(ids, 2 * size);
+			ids[size++] = id;
+		}
+
+		void addAll(Cells other) {
+			if (size + other.size > ids.length)
+				ids = Arrays.copyOf(ids, Math.max(2 * ids.length, size + other.size));
+			System.arraycopy(other.ids, 0, ids, size, other.size);
+			size += other.size;
+		}
+	} // end of class Cells
+
+} // end of class MazeDistances
@@ -0,0 +1,53 @@
+package maze;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Java Flight Recorder event of work on a maze, with the maze it was done on.
+ * Subclasses are committed by the generators, solvers and Maze.validate().
+ * They are only created once Flight Recorder is initialized (see
+ * MazeRecording), as loading them starts it, and then cost next to nothing
+ * while no recording asks for them.
+ *
+ * @author Lettisia George
+ */
+@Category("Maze")
+public abstract class MazeEvent extends Event {
+
+	@Label("Maze Type")
+	public String mazeType;
+
+	@Label("Rows")
+	public int rows;
+
+	@Label("Columns")
+	public int columns;
+
+	/**
+	 * Fill in the maze the work was done on. Only the concrete events call
+	 * end(), shouldCommit() and commit(), as JFR does not support calling them
+	 * from an abstract event class.
+	 */
+	protected void setMaze(Maze maze) {
+		mazeType = typeName(maze.type);
+		rows = maze.sizeR;
+		columns = maze.sizeC;
+	} // end of setMaze()
+
+	/**
+	 * Name of a maze type as in parameter files.
+	 */
+	protected static String typeName(int type) {
+		switch (type) {
+		case Maze.TUNNEL:
+			return "tunnel";
+		case Maze.HEX:
+			return "hex";
+		default:
+			return "normal";
+		}
+	} // end of typeName()
+
+} // end of class MazeEvent
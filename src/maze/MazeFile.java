@@ -0,0 +1,511 @@
+package maze;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact binary file format of a generated maze.
+ *
+ * Layout (big endian): magic "MAZE", format version, type, sizeR, sizeC,
+ * entrance row and column, exit row and column, number of tunnels and the
+ * tunnels themselves as {p1Row, p1Col, p2Row, p2Col}, followed by a wall
+ * bitmap. All coordinates are the ones used in the parameter files, i.e. hex
+ * columns are not shifted. Cell (r, c) has id r * sizeC + c and owns bits
+ * id * bitsPerCell to id * bitsPerCell + bitsPerCell - 1 of the bitmap, one per
+ * wall on its east and north side (2 bits, EAST and NORTH for rectangular
+ * mazes; 3 bits, EAST, NORTHEAST and NORTHWEST for hex mazes). A set bit means
+ * the wall is present. The remaining walls of a cell are owned by its
+ * neighbours, walls on the boundary of the maze are always present.
+ *
+ * Files are opened through FileChannel.map, so the bitmap is paged in lazily
+ * as walls are read. Cells can also be addressed by id (cellId, neighbour,
+ * tunnel and isWallPresent(long, int)), to work on mazes too large to load.
+ *
+ * @author Lettisia George
+ */
+public class MazeFile {
+
+	/**
+	 * "MAZE" in ASCII
+	 */
+	public static final int MAGIC = 0x4D415A45;
+
+	public static final int VERSION = 1;
+
+	/**
+	 * Size of the regions a file is mapped in, as a single MappedByteBuffer
+	 * can not hold more than 2GB
+	 */
+	protected static final int CHUNK_BITS = 30;
+	protected static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+	/**
+	 * header of the maze
+	 */
+	public final int type;
+	public final int sizeR;
+	public final int sizeC;
+	public final int entR;
+	public final int entC;
+	public final int exitR;
+	public final int exitC;
+
+	/**
+	 * tunnels in the form of {p1Row, p1Col, p2Row, p2Col, p1Row, ...}
+	 */
+	public final int tunnels[];
+
+	/**
+	 * Number of bits each cell owns in the bitmap
+	 */
+	public final int bitsPerCell;
+
+	/**
+	 * The bitmap, split into chunks of CHUNK_SIZE bytes
+	 */
+	protected final ByteBuffer bitmap[];
+
+	/**
+	 * Position of the bitmap in the first chunk
+	 */
+	protected final long bitmapOffset;
+
+	/**
+	 * Tunnel ends sorted by id and the id of the other end of each
+	 */
+	private final long tunnelEnds[];
+	private final long tunnelOthers[];
+
+	/**
+	 * Read the header from the start of the buffers and keep the buffers as
+	 * the backing store of the bitmap.
+	 *
+	 * @param chunks
+	 *            Content of the file in chunks of CHUNK_SIZE bytes.
+	 * @throws IOException
+	 *             if the content is not a maze file.
+	 */
+	protected MazeFile(ByteBuffer chunks[]) throws IOException {
+		ByteBuffer header = chunks[0].duplicate();
+		try {
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a maze file.");
+			if (header.getInt() != VERSION)
+				throw new IOException("Unsupported maze file version.");
+			type = header.getInt();
+			sizeR = header.getInt();
+			sizeC = header.getInt();
+			entR = header.getInt();
+			entC = header.getInt();
+			exitR = header.getInt();
+			exitC = header.getInt();
+			tunnels = new int[4 * header.getInt()];
+			for (int i = 0; i < tunnels.length; i++)
+				tunnels[i] = header.getInt();
+		} catch (RuntimeException e) {
+			// BufferUnderflowException, NegativeArraySizeException
+			throw new IOException("Corrupted maze file header.", e);
+		}
+
+		bitsPerCell = bitsPerCell(type);
+		bitmap = chunks;
+		bitmapOffset = header.position();
+
+		long length = (chunks.length - 1) * CHUNK_SIZE + chunks[chunks.length - 1].limit();
+		if (sizeR < 1 || sizeC < 1 || length < bitmapOffset + bitmapSize(sizeR, sizeC, bitsPerCell))
+			throw new IOException("Corrupted maze file.");
+
+		int numTunnels = tunnels.length / 4;
+		long ends[][] = new long[2 * numTunnels][];
+		for (int i = 0; i < numTunnels; i++) {
+			long p1 = cellId(tunnels[4 * i], tunnels[4 * i + 1]);
+			long p2 = cellId(tunnels[4 * i + 2], tunnels[4 * i + 3]);
+			ends[2 * i] = new long[] { p1, p2 };
+			ends[2 * i + 1] = new long[] { p2, p1 };
+		}
+		Arrays.sort(ends, Comparator.comparingLong(end -> end[0]));
+		tunnelEnds = new long[ends.length];
+		tunnelOthers = new long[ends.length];
+		for (int i = 0; i < ends.length; i++) {
+			tunnelEnds[i] = ends[i][0];
+			tunnelOthers[i] = ends[i][1];
+		}
+	} // end of MazeFile()
+
+	/**
+	 * Map a maze file into memory. Only the header is read, walls are paged in
+	 * as they are accessed.
+	 *
+	 * @param file
+	 *            File written by save(Maze, File).
+	 * @return The opened maze file.
+	 * @throws IOException
+	 *             if the file can not be read or is not a maze file.
+	 */
+	public static MazeFile open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			long size = channel.size();
+			ByteBuffer chunks[] = new ByteBuffer[(int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+			for (int i = 0; i < chunks.length; i++) {
+				long pos = i * CHUNK_SIZE;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(CHUNK_SIZE, size - pos));
+			}
+			// the mapping stays valid after the channel is closed
+			return new MazeFile(chunks);
+		}
+	} // end of open()
+
+	/**
+	 * Wrap an encoded maze held in memory.
+	 *
+	 * @param bytes
+	 *            Maze encoded by encode(Maze).
+	 * @return The maze file backed by bytes.
+	 * @throws IOException
+	 *             if bytes is not an encoded maze.
+	 */
+	public static MazeFile decode(byte bytes[]) throws IOException {
+		ByteBuffer chunks[] = { ByteBuffer.wrap(bytes) };
+		return new MazeFile(chunks);
+	} // end of decode()
+
+	/**
+	 * Encode the maze in memory.
+	 *
+	 * @param maze
+	 *            Maze to encode.
+	 * @return The content of the file save(Maze, File) would write.
+	 */
+	public static byte[] encode(Maze maze) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			write(maze, out);
+		} catch (IOException e) {
+			// ByteArrayOutputStream does not throw
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	} // end of encode()
+
+	/**
+	 * Write the maze to a file.
+	 *
+	 * @param maze
+	 *            Maze to write.
+	 * @param file
+	 *            Destination file, overwritten if it exists.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	public static void save(Maze maze, File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			write(maze, out);
+		}
+	} // end of save()
+
+	/**
+	 * Write the maze in this format to a stream.
+	 *
+	 * @param maze
+	 *            Maze to write.
+	 * @param out
+	 *            Stream to write to.
+	 * @throws IOException
+	 *             if writing fails.
+	 */
+	public static void write(Maze maze, DataOutputStream out) throws IOException {
+		// cell ids are r * sizeC + logical column
+		int ends[] = maze.tunnels.toArray();
+		int tunnels[] = new int[2 * ends.length];
+		for (int i = 0; i < ends.length; i++) {
+			tunnels[2 * i] = ends[i] / maze.sizeC;
+			tunnels[2 * i + 1] = ends[i] % maze.sizeC;
+		}
+		writeHeader(out, maze.type, maze.sizeR, maze.sizeC, maze.entrance.r,
+				colOf(maze.type, maze.entrance.r, maze.entrance.c), maze.exit.r,
+				colOf(maze.type, maze.exit.r, maze.exit.c), tunnels);
+
+		int bits = bitsPerCell(maze.type);
+		int acc = 0;
+		int n = 0;
+		// cells are stored in the order of their ids
+		for (int id = 0; id < maze.numCells(); id++) {
+			Cell cell = maze.cellAt(id);
+			for (int k = 0; k < bits; k++) {
+				if (cell.wall[ownedDir(maze.type, k)].present)
+					acc |= 1 << n;
+				if (++n == 8) {
+					out.write(acc);
+					acc = 0;
+					n = 0;
+				}
+			}
+		}
+		if (n > 0)
+			out.write(acc);
+	} // end of write()
+
+	/**
+	 * Check whether a wall is present.
+	 *
+	 * @param r
+	 *            Row coordinate of the cell.
+	 * @param c
+	 *            Column coordinate of the cell, not shifted for hex mazes.
+	 * @param dir
+	 *            Direction of the wall, one of the Maze direction constants.
+	 * @return True if the wall is present or on the boundary of the maze.
+	 */
+	public boolean isWallPresent(int r, int c, int dir) {
+		// rectangular mazes have no diagonal neighbours
+		if (type != Maze.HEX && (dir == Maze.NORTHEAST || dir == Maze.SOUTHWEST))
+			return true;
+		int slot = slotOf(type, dir);
+		if (slot < 0) {
+			// owned by the neighbour on the other side
+			int nr = r + Maze.deltaR[dir];
+			int nc = colOf(type, nr, mapColOf(type, r, c) + Maze.deltaC[dir]);
+			if (nr < 0 || nr >= sizeR || nc < 0 || nc >= sizeC)
+				return true;
+			return isWallPresent(nr, nc, Maze.oppoDir[dir]);
+		}
+		if (c < 0 || c >= sizeC)
+			return true;
+		return getBit(((long) r * sizeC + c) * bitsPerCell + slot);
+	} // end of isWallPresent()
+
+	/**
+	 * @return Number of cells, sizeR * sizeC.
+	 */
+	public long numCells() {
+		return (long) sizeR * sizeC;
+	} // end of numCells()
+
+	/**
+	 * @param c
+	 *            Column of the cell, not shifted for hex mazes.
+	 * @return Id of the cell.
+	 */
+	public long cellId(int r, int c) {
+		return (long) r * sizeC + c;
+	} // end of cellId()
+
+	public int rowOfId(long id) {
+		return (int) (id / sizeC);
+	} // end of rowOfId()
+
+	/**
+	 * @return Column of the cell, not shifted for hex mazes.
+	 */
+	public int colOfId(long id) {
+		return (int) (id % sizeC);
+	} // end of colOfId()
+
+	public long entranceId() {
+		return cellId(entR, entC);
+	} // end of entranceId()
+
+	public long exitId() {
+		return cellId(exitR, exitC);
+	} // end of exitId()
+
+	/**
+	 * @param dir
+	 *            One of the Maze direction constants.
+	 * @return Id of the neighbour in direction dir, -1 if there is none.
+	 */
+	public long neighbour(long id, int dir) {
+		if (type != Maze.HEX && (dir == Maze.NORTHEAST || dir == Maze.SOUTHWEST))
+			return -1;
+		int r = rowOfId(id);
+		int nr = r + Maze.deltaR[dir];
+		if (nr < 0 || nr >= sizeR)
+			return -1;
+		int nc = colOf(type, nr, mapColOf(type, r, colOfId(id)) + Maze.deltaC[dir]);
+		if (nc < 0 || nc >= sizeC)
+			return -1;
+		return (long) nr * sizeC + nc;
+	} // end of neighbour()
+
+	/**
+	 * @return Id of the other end of the tunnel at the cell, -1 if there is
+	 *         none.
+	 */
+	public long tunnel(long id) {
+		int i = Arrays.binarySearch(tunnelEnds, id);
+		return i < 0 ? -1 : tunnelOthers[i];
+	} // end of tunnel()
+
+	/**
+	 * @return True if the wall in direction dir is present or on the boundary
+	 *         of the maze.
+	 */
+	public boolean isWallPresent(long id, int dir) {
+		long bit = wallBit(id, dir);
+		return bit < 0 || getBit(bit);
+	} // end of isWallPresent()
+
+	/**
+	 * Read a bit of the bitmap.
+	 */
+	protected boolean getBit(long bit) {
+		long pos = bitmapOffset + (bit >>> 3);
+		return (bitmap[(int) (pos >>> CHUNK_BITS)].get((int) (pos & (CHUNK_SIZE - 1))) & 1 << (bit & 7)) != 0;
+	} // end of getBit()
+
+	/**
+	 * Build the maze stored in the file.
+	 *
+	 * @return An initialised maze with the walls of the file.
+	 */
+	public Maze load() {
+		return load(false);
+	} // end of load()
+
+	/**
+	 * Build the maze stored in the file.
+	 *
+	 * @param isLazy
+	 *            If true, cells are built and their walls read from the file
+	 *            only when first reached, see Maze.isLazy.
+	 * @return An initialised maze with the walls of the file.
+	 */
+	public Maze load(boolean isLazy) {
+		NormalMaze maze;
+		switch (type) {
+		case Maze.TUNNEL:
+			maze = new TunnelMaze();
+			break;
+		case Maze.HEX:
+			maze = new HexMaze();
+			break;
+		default:
+			maze = new NormalMaze();
+		}
+
+		List<int[]> tunnelList = new ArrayList<int[]>();
+		for (int i = 0; i < tunnels.length; i += 4) {
+			int tunnel[] = { tunnels[i], tunnels[i + 1], tunnels[i + 2], tunnels[i + 3] };
+			tunnelList.add(tunnel);
+		}
+		maze.isLazy = isLazy;
+		if (isLazy) {
+			maze.wallSource = this;
+			maze.initMaze(sizeR, sizeC, entR, entC, exitR, exitC, tunnelList);
+			return maze;
+		}
+		maze.initMaze(sizeR, sizeC, entR, entC, exitR, exitC, tunnelList);
+
+		for (int r = 0; r < sizeR; r++)
+			for (int c = 0; c < sizeC; c++) {
+				Cell cell = maze.cellAt(r * sizeC + c);
+				for (int k = 0; k < bitsPerCell; k++) {
+					int dir = ownedDir(type, k);
+					cell.wall[dir].present = isWallPresent(r, c, dir);
+				}
+			}
+
+		return maze;
+	} // end of load()
+
+	// auxiliary functions
+	/**
+	 * Bit of the bitmap holding a wall, -1 for walls on the boundary.
+	 */
+	protected long wallBit(long id, int dir) {
+		int slot = slotOf(type, dir);
+		if (slot < 0) {
+			// owned by the neighbour on the other side
+			id = neighbour(id, dir);
+			if (id < 0)
+				return -1;
+			slot = slotOf(type, Maze.oppoDir[dir]);
+		} else if (neighbour(id, dir) < 0) {
+			return -1;
+		}
+		return id * bitsPerCell + slot;
+	} // end of wallBit()
+
+	/**
+	 * Write the header of a maze file, coordinates as in the parameter files.
+	 *
+	 * @param tunnels
+	 *            Tunnels in the form of {p1Row, p1Col, p2Row, p2Col, p1Row,
+	 *            ...}.
+	 */
+	protected static void writeHeader(DataOutputStream out, int type, int sizeR, int sizeC, int entR, int entC,
+			int exitR, int exitC, int tunnels[]) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(type);
+		out.writeInt(sizeR);
+		out.writeInt(sizeC);
+		out.writeInt(entR);
+		out.writeInt(entC);
+		out.writeInt(exitR);
+		out.writeInt(exitC);
+		out.writeInt(tunnels.length / 4);
+		for (int value : tunnels)
+			out.writeInt(value);
+	} // end of writeHeader()
+
+	/**
+	 * Number of bits a cell of a maze of given type owns in the bitmap.
+	 */
+	protected static int bitsPerCell(int type) {
+		return type == Maze.HEX ? 3 : 2;
+	} // end of bitsPerCell()
+
+	/**
+	 * Size in bytes of the bitmap of a maze.
+	 */
+	protected static long bitmapSize(int sizeR, int sizeC, int bitsPerCell) {
+		return ((long) sizeR * sizeC * bitsPerCell + 7) / 8;
+	} // end of bitmapSize()
+
+	/**
+	 * Direction of the wall stored in the given bit of a cell.
+	 */
+	protected static int ownedDir(int type, int slot) {
+		if (type == Maze.HEX)
+			return slot;
+		return slot == 0 ? Maze.EAST : Maze.NORTH;
+	} // end of ownedDir()
+
+	/**
+	 * Bit of a cell storing the wall in the given direction, -1 if the wall is
+	 * owned by the neighbour in that direction.
+	 */
+	protected static int slotOf(int type, int dir) {
+		if (type == Maze.HEX)
+			return dir < 3 ? dir : -1;
+		return dir == Maze.EAST ? 0 : dir == Maze.NORTH ? 1 : -1;
+	} // end of slotOf()
+
+	/**
+	 * Column of map[r][] holding the cell of (unshifted) column c.
+	 */
+	protected static int mapColOf(int type, int r, int c) {
+		return type == Maze.HEX ? c + (r + 1) / 2 : c;
+	} // end of mapColOf()
+
+	/**
+	 * Unshifted column of the cell stored in map[r][mapC].
+	 */
+	protected static int colOf(int type, int r, int mapC) {
+		return type == Maze.HEX ? mapC - (r + 1) / 2 : mapC;
+	} // end of colOf()
+
+} // end of class MazeFile
@@ -0,0 +1,43 @@
+package maze;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A maze generator run, from the all-wall maze to the generated one.
+ *
+ * @author Lettisia George
+ */
+@Name("maze.MazeGenerated")
+@Label("Maze Generated")
+@Description("A maze generator run")
+public class MazeGeneratedEvent extends MazeEvent {
+
+	@Label("Generator")
+	public String generator;
+
+	@Label("Seed")
+	public long seed;
+
+	@Label("Walls Removed")
+	public long wallsRemoved;
+
+	/**
+	 * End the run and commit it if the recording asks for it.
+	 *
+	 * @param generator
+	 *            The generator that ran.
+	 */
+	public void finish(Maze maze, Object generator, long seed) {
+		end();
+		if (!shouldCommit())
+			return;
+		setMaze(maze);
+		this.generator = generator.getClass().getSimpleName();
+		this.seed = seed;
+		this.wallsRemoved = maze.counters.wallsRemoved;
+		commit();
+	} // end of finish()
+
+} // end of class MazeGeneratedEvent
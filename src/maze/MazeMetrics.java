@@ -0,0 +1,234 @@
+package maze;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Difficulty metrics of a perfect maze, for ranking generated mazes: the
+ * length of the solution, the dead ends, how often the maze branches, how
+ * long its corridors are, its diameter and how much of it a wall follower
+ * explores.
+ * <p>
+ * A passage is an open wall or a tunnel, and a corridor is a path between two
+ * cells that do not have two passages, through cells that do. Everything is
+ * found in a few linear passes over the open walls indexed by MazeDistances:
+ * two breadth first searches (from the entrance, then from the cell farthest
+ * from it, which is an end of a longest path as the maze is a tree), one pass
+ * counting passages and following corridors, and a walk of the wall
+ * follower, without building any Cell objects.
+ *
+ * @author Lettisia George
+ */
+public class MazeMetrics {
+
+	public final long numCells;
+
+	/**
+	 * Cells on the path from the entrance to the exit, both included
+	 */
+	public final int solutionLength;
+
+	/**
+	 * Cells with one passage
+	 */
+	public final long deadEnds;
+
+	/**
+	 * Number of cells by number of passages, from 0 to NUM_DIR + 1
+	 */
+	public final long branching[] = new long[Maze.NUM_DIR + 2];
+
+	/**
+	 * Number of corridors by length, the number of moves from one end to the
+	 * other, up to the longest corridor
+	 */
+	public final long corridors[];
+
+	/**
+	 * Moves on the longest path of the maze
+	 */
+	public final int diameter;
+
+	/**
+	 * Distinct cells WallFollowerSolver visits before it reaches the exit,
+	 * both the entrance and the exit included
+	 */
+	public final long wallFollowerCells;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the maze is not perfect.
+	 */
+	private MazeMetrics(MazeFile maze) {
+		MazeDistances index = new MazeDistances(maze);
+		int n = index.numCells();
+		numCells = n;
+
+		long passages = 0;
+		for (int id = 0; id < n; id++) {
+			int count = Integer.bitCount(index.passages(id));
+			branching[count]++;
+			passages += count;
+		}
+		deadEnds = branching[1];
+
+		// a tree has one passage less than cells, and reaches every cell
+		int fromEntrance[] = index.search(new long[] { maze.entranceId() });
+		int farthest = farthest(fromEntrance);
+		if (passages != 2L * (n - 1) || Arrays.stream(fromEntrance).anyMatch(d -> d == MazeDistances.UNREACHED))
+			throw new IllegalArgumentException("Metrics are only defined for perfect mazes.");
+		solutionLength = fromEntrance[(int) maze.exitId()] + 1;
+		int fromFarthest[] = index.search(new long[] { farthest });
+		diameter = fromFarthest[farthest(fromFarthest)];
+
+		corridors = corridors(index);
+		wallFollowerCells = wallFollower(index, (int) maze.entranceId(), (int) maze.exitId());
+	} // end of MazeMetrics()
+
+	/**
+	 * Metrics of a maze built of Cell objects.
+	 *
+	 * @param maze
+	 *            Perfect maze.
+	 * @throws IllegalArgumentException
+	 *             if the maze is not perfect.
+	 */
+	public static MazeMetrics of(Maze maze) {
+		try {
+			return new MazeMetrics(MazeFile.decode(MazeFile.encode(maze)));
+		} catch (IOException e) {
+			// a maze just encoded always decodes
+			throw new UncheckedIOException(e);
+		}
+	} // end of of()
+
+	/**
+	 * Metrics of a maze file, or an OffHeapMaze of at most 2^31 - 65 cells.
+	 *
+	 * @param maze
+	 *            Perfect maze.
+	 * @throws IllegalArgumentException
+	 *             if the maze is not perfect.
+	 */
+	public static MazeMetrics of(MazeFile maze) {
+		return new MazeMetrics(maze);
+	} // end of of()
+
+	/**
+	 * @return The metrics as a single line JSON object.
+	 */
+	public String toJson() {
+		return "{\"cells\":" + numCells + ",\"solutionLength\":" + solutionLength + ",\"deadEnds\":" + deadEnds
+				+ ",\"branching\":" + Arrays.toString(branching) + ",\"corridors\":" + Arrays.toString(corridors)
+				+ ",\"diameter\":" + diameter + ",\"wallFollowerCells\":" + wallFollowerCells + "}";
+	} // end of toJson()
+
+	// auxiliary functions
+	/**
+	 * @return Id of a cell with the largest distance.
+	 */
+	private static int farthest(int dist[]) {
+		int farthest = 0;
+		for (int id = 1; id < dist.length; id++)
+			if (dist[id] > dist[farthest])
+				farthest = id;
+		return farthest;
+	} // end of farthest()
+
+	/**
+	 * Follow every corridor from both its ends, counting it from the end with
+	 * the smaller id. Every cell with two passages is passed twice, so this
+	 * takes linear time.
+	 */
+	private static long[] corridors(MazeDistances index) {
+		long counts[] = new long[2];
+		int longest = 0;
+		for (int id = 0; id < index.numCells(); id++) {
+			int passages = index.passages(id);
+			if (Integer.bitCount(passages) == 2)
+				continue;
+			for (int dir = 0; dir <= Maze.NUM_DIR; dir++) {
+				if ((passages & 1 << dir) == 0)
+					continue;
+				int prev = id;
+				int cell = index.neighbour(id, dir);
+				int length = 1;
+				while (Integer.bitCount(index.passages(cell)) == 2) {
+					int next = onward(index, cell, prev);
+					prev = cell;
+					cell = next;
+					length++;
+				}
+				if (id < cell) {
+					if (length >= counts.length)
+						counts = Arrays.copyOf(counts, Math.max(2 * counts.length, length + 1));
+					counts[length]++;
+					longest = Math.max(longest, length);
+				}
+			}
+		}
+		return Arrays.copyOf(counts, longest + 1);
+	} // end of corridors()
+
+	/**
+	 * @return The cell the passage of a two passage cell that does not lead
+	 *         to prev leads to.
+	 */
+	private static int onward(MazeDistances index, int cell, int prev) {
+		int passages = index.passages(cell);
+		for (int dir = 0; dir <= Maze.NUM_DIR; dir++) {
+			if ((passages & 1 << dir) == 0)
+				continue;
+			int next = index.neighbour(cell, dir);
+			if (next != prev)
+				return next;
+		}
+		return prev;
+	} // end of onward()
+
+	/**
+	 * Walk of WallFollowerSolver: the tunnel first if its other end is not
+	 * visited, else the first unvisited neighbour through an open wall,
+	 * checking directions from the right of the last move through a wall
+	 * round to its left, else back.
+	 *
+	 * @return Distinct cells visited until the exit.
+	 */
+	private static long wallFollower(MazeDistances index, int entrance, int exit) {
+		boolean visited[] = new boolean[index.numCells()];
+		int stack[] = new int[16];
+		int size = 0;
+		stack[size++] = entrance;
+		visited[entrance] = true;
+		long count = 1;
+		// the solver starts facing northwest, whose right is east
+		int facing = Maze.NORTHWEST;
+		while (size > 0 && stack[size - 1] != exit) {
+			int cell = stack[size - 1];
+			int passages = index.passages(cell);
+			int next = -1;
+			if ((passages & 1 << Maze.NUM_DIR) != 0 && !visited[index.neighbour(cell, Maze.NUM_DIR)])
+				next = index.neighbour(cell, Maze.NUM_DIR);
+			for (int i = 0; i < Maze.NUM_DIR && next < 0; i++) {
+				int dir = (facing + Maze.NUM_DIR - 2 + i) % Maze.NUM_DIR;
+				if ((passages & 1 << dir) != 0 && !visited[index.neighbour(cell, dir)]) {
+					next = index.neighbour(cell, dir);
+					facing = dir;
+				}
+			}
+
+			if (next < 0) {
+				size--;
+			} else {
+				visited[next] = true;
+				count++;
+				if (size == stack.length)
+					stack = Arrays.copyOf(stack, 2 * size);
+				stack[size++] = next;
+			}
+		}
+		return count;
+	} // end of wallFollower()
+
+} // end of class MazeMetrics
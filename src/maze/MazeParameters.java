@@ -0,0 +1,209 @@
+package maze;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parameters of a maze read from a parameter (.para) file:
+ *
+ * <pre>
+ * mazeType
+ * generatorName solverName
+ * rowNum colNum
+ * entranceRow entranceColumn
+ * exitRow exitColumn
+ * p1Row p1Col p2Row p2Col     (one line per tunnel, optional)
+ * </pre>
+ *
+ * The file is parsed byte by byte and integers are built directly from the
+ * digits, so files with hundreds of thousands of tunnels are read without
+ * creating a String per token.
+ *
+ * @author Lettisia George
+ */
+public class MazeParameters {
+
+	/**
+	 * Size of the read buffer
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * parameters of the maze
+	 */
+	public String mazeType;
+	public String mazeGeneratorName;
+	public String mazeSolverName;
+	public int rowNum;
+	public int colNum;
+	public int entR;
+	public int entC;
+	public int exitR;
+	public int exitC;
+	public List<int[]> tunnelList = new ArrayList<int[]>();
+
+	/**
+	 * parser state
+	 */
+	private String source;
+	private InputStream in;
+	private byte buffer[];
+	private int pos;
+	private int limit;
+	private int line;
+
+	/**
+	 * Read the parameters from a file.
+	 *
+	 * @param file
+	 *            Parameter file.
+	 * @return The parameters in the file.
+	 * @throws java.io.FileNotFoundException
+	 *             if the file does not exist.
+	 * @throws IOException
+	 *             if the file can not be read or is malformed, the message
+	 *             gives the line of the error.
+	 */
+	public static MazeParameters parse(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			return parse(in, file.getPath());
+		}
+	} // end of parse()
+
+	/**
+	 * Read the parameters from a stream.
+	 *
+	 * @param in
+	 *            Stream with the content of a parameter file, it is not
+	 *            closed.
+	 * @param source
+	 *            Name of the stream used in error messages.
+	 * @return The parameters read.
+	 * @throws IOException
+	 *             if the stream can not be read or is malformed, the message
+	 *             gives the line of the error.
+	 */
+	public static MazeParameters parse(InputStream in, String source) throws IOException {
+		MazeParameters params = new MazeParameters();
+		params.source = source;
+		params.in = in;
+		params.buffer = new byte[BUFFER_SIZE];
+		params.line = 1;
+
+		params.mazeType = params.nextWord("maze type");
+		params.mazeGeneratorName = params.nextWord("generator name");
+		params.mazeSolverName = params.nextWord("solver name");
+		params.rowNum = params.nextInt("row number");
+		params.colNum = params.nextInt("column number");
+		params.entR = params.nextInt("entrance row");
+		params.entC = params.nextInt("entrance column");
+		params.exitR = params.nextInt("exit row");
+		params.exitC = params.nextInt("exit column");
+
+		// add tunnels
+		while (params.skipSpace()) {
+			int tunnel[] = { params.nextInt("tunnel row"), params.nextInt("tunnel column"),
+					params.nextInt("tunnel row"), params.nextInt("tunnel column") };
+			params.tunnelList.add(tunnel);
+		}
+
+		params.in = null;
+		params.buffer = null;
+		return params;
+	} // end of parse()
+
+	// auxiliary functions
+	/**
+	 * Make sure there is at least one unread byte in the buffer.
+	 *
+	 * @return False at the end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		if (pos < limit)
+			return true;
+		limit = in.read(buffer, 0, buffer.length);
+		pos = 0;
+		if (limit <= 0) {
+			limit = 0;
+			return false;
+		}
+		return true;
+	} // end of fill()
+
+	/**
+	 * Skip white space, counting lines.
+	 *
+	 * @return False if the end of the stream was reached.
+	 */
+	private boolean skipSpace() throws IOException {
+		while (fill()) {
+			byte b = buffer[pos];
+			if (b == '\n')
+				line++;
+			else if (b != ' ' && b != '\t' && b != '\r' && b != '\f')
+				return true;
+			pos++;
+		}
+		return false;
+	} // end of skipSpace()
+
+	/**
+	 * Read the next white space separated word.
+	 */
+	private String nextWord(String what) throws IOException {
+		if (!skipSpace())
+			throw error("missing " + what);
+		StringBuilder word = new StringBuilder();
+		while (fill() && buffer[pos] > ' ')
+			word.append((char) buffer[pos++]);
+		return word.toString();
+	} // end of nextWord()
+
+	/**
+	 * Read the next integer, digits are accumulated without building a String.
+	 */
+	private int nextInt(String what) throws IOException {
+		if (!skipSpace())
+			throw error("missing " + what);
+		boolean negative = false;
+		if (buffer[pos] == '-' || buffer[pos] == '+') {
+			negative = buffer[pos] == '-';
+			pos++;
+		}
+
+		long value = 0;
+		int digits = 0;
+		while (fill() && buffer[pos] > ' ') {
+			int d = buffer[pos] - '0';
+			if (d < 0 || d > 9)
+				throw error(what + " is not an integer");
+			value = value * 10 + d;
+			if (value > (long) Integer.MAX_VALUE + 1)
+				throw error(what + " is out of range");
+			digits++;
+			pos++;
+		}
+		if (digits == 0)
+			throw error(what + " is not an integer");
+		if (negative)
+			value = -value;
+		if (value > Integer.MAX_VALUE)
+			throw error(what + " is out of range");
+		return (int) value;
+	} // end of nextInt()
+
+	/**
+	 * Build an exception pointing at the current line.
+	 */
+	private IOException error(String message) {
+		if (pos >= limit)
+			return new EOFException(source + ":" + line + ": " + message + ".");
+		return new IOException(source + ":" + line + ": " + message + ".");
+	} // end of error()
+
+} // end of class MazeParameters
@@ -0,0 +1,41 @@
+package maze;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Whether maze events (see MazeEvent) can be recorded. Loading the first
+ * jdk.jfr.Event class starts the Flight Recorder machinery, which takes
+ * hundreds of milliseconds, so the generators, solvers and Maze.validate()
+ * only create events once Flight Recorder is initialized, by
+ * -XX:StartFlightRecording or by a recording started later. This class does
+ * not extend Event, so checking costs one field read.
+ *
+ * @author Lettisia George
+ */
+public final class MazeRecording {
+
+	/**
+	 * Number of cells pushed per MazeStepEvent, set by the system property
+	 * maze.stepInterval
+	 */
+	public static final long STEP_INTERVAL = Math.max(1, Long.getLong("maze.stepInterval", 1024));
+
+	/**
+	 * Set once Flight Recorder is initialized, which it stays
+	 */
+	private static volatile boolean isInitialized = false;
+
+	private MazeRecording() {
+	} // end of MazeRecording()
+
+	/**
+	 * @return true if Flight Recorder is initialized, so events may be
+	 *         recorded.
+	 */
+	public static boolean isActive() {
+		if (!isInitialized)
+			isInitialized = FlightRecorder.isInitialized();
+		return isInitialized;
+	} // end of isActive()
+
+} // end of class MazeRecording
@@ -0,0 +1,43 @@
+package maze;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A maze solver run.
+ *
+ * @author Lettisia George
+ */
+@Name("maze.MazeSolved")
+@Label("Maze Solved")
+@Description("A maze solver run")
+public class MazeSolvedEvent extends MazeEvent {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Solved")
+	public boolean solved;
+
+	@Label("Cells Explored")
+	public long cellsExplored;
+
+	/**
+	 * End the run and commit it if the recording asks for it.
+	 *
+	 * @param solver
+	 *            The solver that ran.
+	 */
+	public void finish(Maze maze, Object solver, boolean solved, long cellsExplored) {
+		end();
+		if (!shouldCommit())
+			return;
+		setMaze(maze);
+		this.solver = solver.getClass().getSimpleName();
+		this.solved = solved;
+		this.cellsExplored = cellsExplored;
+		commit();
+	} // end of finish()
+
+} // end of class MazeSolvedEvent
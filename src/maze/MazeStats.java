@@ -0,0 +1,136 @@
+package maze;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wall clock and CPU time of the phases of a maze run (e.g. initMaze,
+ * generateMaze, solveMaze), with the MazeCounters of each phase, written as
+ * one line of JSON. Timing a phase reads two clocks, so stats can be kept for
+ * every run.
+ *
+ * Phases must be started and stopped on the thread doing the work, as CPU
+ * time is that of the current thread.
+ *
+ * @author Lettisia George
+ */
+public class MazeStats {
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Properties of the run, e.g. maze type and seed
+	 */
+	private final Map<String, Object> properties = new LinkedHashMap<String, Object>();
+
+	/**
+	 * Completed phases, as name, wall nanoseconds, CPU nanoseconds and counters
+	 */
+	private final List<Object[]> phases = new ArrayList<Object[]>();
+
+	private String phase = null;
+	private long wallStart;
+	private long cpuStart;
+
+	/**
+	 * Add a property of the run.
+	 *
+	 * @param value
+	 *            A String, Number or Boolean.
+	 */
+	public void put(String key, Object value) {
+		properties.put(key, value);
+	} // end of put()
+
+	/**
+	 * Start timing a phase.
+	 */
+	public void start(String name) {
+		phase = name;
+		cpuStart = cpuTime();
+		wallStart = System.nanoTime();
+	} // end of start()
+
+	/**
+	 * Stop timing the current phase.
+	 *
+	 * @param counters
+	 *            Counters of the work done in the phase, reset for the next
+	 *            one, or null.
+	 */
+	public void stop(MazeCounters counters) {
+		long wall = System.nanoTime() - wallStart;
+		long cpu = cpuStart < 0 ? -1 : cpuTime() - cpuStart;
+		long counts[] = null;
+		if (counters != null) {
+			counts = new long[] { counters.wallsRemoved, counters.cellsPushed, counters.cellsPopped,
+					counters.peakFrontier };
+			counters.reset();
+		}
+		phases.add(new Object[] { phase, wall, cpu, counts });
+		phase = null;
+	} // end of stop()
+
+	/**
+	 * @return The properties and phases as a single line JSON object.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{");
+		for (Map.Entry<String, Object> property : properties.entrySet()) {
+			appendString(json, property.getKey());
+			json.append(':');
+			Object value = property.getValue();
+			if (value instanceof Number || value instanceof Boolean)
+				json.append(value);
+			else if (value == null)
+				json.append("null");
+			else
+				appendString(json, value.toString());
+			json.append(',');
+		}
+		json.append("\"phases\":[");
+		for (int i = 0; i < phases.size(); i++) {
+			Object record[] = phases.get(i);
+			json.append(i > 0 ? ",{\"phase\":" : "{\"phase\":");
+			appendString(json, (String) record[0]);
+			json.append(String.format(Locale.ROOT, ",\"wallMs\":%.3f", (Long) record[1] / 1e6));
+			long cpu = (Long) record[2];
+			json.append(cpu < 0 ? ",\"cpuMs\":null" : String.format(Locale.ROOT, ",\"cpuMs\":%.3f", cpu / 1e6));
+			long counts[] = (long[]) record[3];
+			if (counts != null)
+				json.append(",\"wallsRemoved\":").append(counts[0]).append(",\"cellsPushed\":").append(counts[1])
+						.append(",\"cellsPopped\":").append(counts[2]).append(",\"peakFrontier\":").append(counts[3]);
+			json.append('}');
+		}
+		return json.append("]}").toString();
+	} // end of toJson()
+
+	// auxiliary functions
+	/**
+	 * @return CPU time of the current thread in nanoseconds, -1 if the JVM
+	 *         can not measure it.
+	 */
+	private static long cpuTime() {
+		return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+	} // end of cpuTime()
+
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\')
+				json.append('\\').append(ch);
+			else if (ch < ' ')
+				json.append(String.format("\\u%04x", (int) ch));
+			else
+				json.append(ch);
+		}
+		json.append('"');
+	} // end of appendString()
+
+} // end of class MazeStats
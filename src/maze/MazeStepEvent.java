@@ -0,0 +1,53 @@
+package maze;
+
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Sample of the steps of a generator or solver: one event covers the last
+ * MazeRecording.STEP_INTERVAL cells pushed onto its frontier (see
+ * MazeCounters) and ends at the cell pushed last. Disabled unless the
+ * settings (.jfc) of a recording enable it.
+ *
+ * @author Lettisia George
+ */
+@Name("maze.MazeStep")
+@Label("Maze Step")
+@Description("Sample of the cells pushed by a generator or solver")
+@Enabled(false)
+public class MazeStepEvent extends MazeEvent {
+
+	@Label("Row")
+	public int row;
+
+	@Label("Column")
+	public int column;
+
+	@Label("Frontier Size")
+	public int frontierSize;
+
+	@Label("Cells Pushed")
+	public long cellsPushed;
+
+	@Label("Cells Popped")
+	public long cellsPopped;
+
+	/**
+	 * End the sample at a cell and commit it if the recording asks for it.
+	 */
+	public void finish(Maze maze, Cell cell, int frontierSize) {
+		end();
+		if (!shouldCommit())
+			return;
+		setMaze(maze);
+		row = cell.r;
+		column = cell.c;
+		this.frontierSize = frontierSize;
+		cellsPushed = maze.counters.cellsPushed;
+		cellsPopped = maze.counters.cellsPopped;
+		commit();
+	} // end of finish()
+
+} // end of class MazeStepEvent
@@ -0,0 +1,32 @@
+package maze;
+
+/**
+ * A generator or solver run on one maze that is advanced a bounded number of
+ * steps at a time instead of in one blocking call, so a cooperative scheduler
+ * can interleave many mazes, or animate one, with bounded work per slice. A
+ * step is one unit of work of the algorithm, e.g. carving to, visiting or
+ * backtracking from one cell, and takes bounded time.
+ *
+ * @author Lettisia George
+ */
+public interface MazeStepper {
+
+	/**
+	 * Run the next steps.
+	 *
+	 * @param maxSteps
+	 *            Largest number of steps to run, at least 1.
+	 * @return true once the run is over, after which step(int) does nothing
+	 *         and keeps returning true.
+	 */
+	boolean step(int maxSteps);
+
+	/**
+	 * Step until the run is over.
+	 */
+	default void finish() {
+		while (!step(Integer.MAX_VALUE))
+			;
+	} // end of finish()
+
+} // end of interface MazeStepper
@@ -0,0 +1,204 @@
+package maze;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Writes a maze as an SVG image laid out like Maze.draw(): walls in black,
+ * the entrance in blue, the exit in red, the ends of every tunnel outlined in
+ * a colour of their own and, optionally, the footprints of a solver in grey.
+ * One maze unit is one cell, scaled to SCALE pixels.
+ *
+ * @author Lettisia George
+ */
+public class MazeSvg {
+
+	/**
+	 * Pixels per cell
+	 */
+	public static final int SCALE = 12;
+
+	/**
+	 * Colours of the tunnels, as in TunnelMaze.draw()
+	 */
+	private static final String tunnelColours[] = { "#00ffff", "#00ff00", "#ff00ff", "#ffc800", "#ffafaf",
+			"#ffff00", "#0000ff", "#67c8ff", "#962a2a" };
+
+	/**
+	 * Half the length of a hex wall, as in HexMaze.draw()
+	 */
+	private static final double halfEdge = 1.0 / 3;
+
+	/**
+	 * Write a maze with the footprints of the solver that ran on it.
+	 *
+	 * @param maze
+	 *            Initialised maze.
+	 * @param out
+	 *            Destination of the SVG document.
+	 */
+	public static void write(Maze maze, Appendable out) throws IOException {
+		NormalMaze normal = (NormalMaze) maze;
+		write(MazeFile.decode(MazeFile.encode(maze)), normal.isRecorded, out);
+	} // end of write()
+
+	/**
+	 * Write a maze file.
+	 *
+	 * @param maze
+	 *            Maze to write.
+	 * @param footprints
+	 *            Cells to mark, by id, or null.
+	 * @param out
+	 *            Destination of the SVG document.
+	 */
+	public static void write(MazeFile maze, boolean footprints[], Appendable out) throws IOException {
+		boolean isHex = maze.type == Maze.HEX;
+		double width = maze.sizeC + (isHex ? 2.5 : 2);
+		double height = maze.sizeR + 2;
+		out.append(String.format(Locale.ROOT,
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%.0f\" height=\"%.0f\" viewBox=\"-1 -1 %s %s\">\n",
+				width * SCALE, height * SCALE, number(width), number(height)));
+		out.append("<rect x=\"-1\" y=\"-1\" width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+
+		if (footprints != null) {
+			out.append("<g fill=\"#808080\">\n");
+			for (long id = 0; id < maze.numCells(); id++)
+				if (footprints[(int) id])
+					circle(maze, id, 0.25, out);
+			out.append("</g>\n");
+		}
+
+		out.append("<g fill=\"blue\">");
+		circle(maze, maze.entranceId(), 0.375, out);
+		out.append("</g>\n<g fill=\"red\">");
+		circle(maze, maze.exitId(), 0.375, out);
+		out.append("</g>\n");
+
+		// every wall is drawn from the cell owning it, except walls on the
+		// boundary, and one of those is left open at the entrance and exit
+		out.append("<path fill=\"none\" stroke=\"black\" stroke-width=\"0.1\" stroke-linecap=\"round\" d=\"");
+		int openEntrance = openDir(maze, maze.entranceId());
+		int openExit = openDir(maze, maze.exitId());
+		for (long id = 0; id < maze.numCells(); id++)
+			for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+				if (!isHex && (dir == Maze.NORTHEAST || dir == Maze.SOUTHWEST))
+					continue;
+				boolean isBoundary = maze.neighbour(id, dir) < 0;
+				if (!isBoundary && MazeFile.slotOf(maze.type, dir) < 0 || !maze.isWallPresent(id, dir))
+					continue;
+				if (id == maze.entranceId() && dir == openEntrance || id == maze.exitId() && dir == openExit)
+					continue;
+				wall(maze, id, dir, out);
+			}
+		out.append("\"/>\n");
+
+		for (int i = 0; i < maze.tunnels.length; i += 4) {
+			out.append("<g fill=\"none\" stroke=\"").append(tunnelColours[i / 4 % tunnelColours.length])
+					.append("\" stroke-width=\"0.08\">");
+			for (int end = i; end <= i + 2; end += 2) {
+				int r = maze.tunnels[end];
+				int c = maze.tunnels[end + 1];
+				out.append(String.format(Locale.ROOT, "<rect x=\"%s\" y=\"%s\" width=\"0.8\" height=\"0.8\"/>",
+						number(x(maze, r, c) + 0.1), number(y(maze, r + 0.9))));
+			}
+			out.append("</g>\n");
+		}
+		out.append("</svg>\n");
+	} // end of write()
+
+	// auxiliary functions
+	/**
+	 * Direction of the boundary wall left open at a cell, as in Maze.draw().
+	 */
+	private static int openDir(MazeFile maze, long id) {
+		for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+			if (maze.type != Maze.HEX && (dir == Maze.NORTHEAST || dir == Maze.SOUTHWEST))
+				continue;
+			if (maze.neighbour(id, dir) < 0)
+				return dir;
+		}
+		return -1;
+	} // end of openDir()
+
+	/**
+	 * Left edge of a cell in maze units, hex rows are shifted.
+	 */
+	private static double x(MazeFile maze, int r, int c) {
+		return maze.type == Maze.HEX ? c + r % 2 * 0.5 : c;
+	} // end of x()
+
+	/**
+	 * SVG y coordinate of a maze height, as rows go up on the canvas.
+	 */
+	private static double y(MazeFile maze, double mazeY) {
+		return maze.sizeR - mazeY;
+	} // end of y()
+
+	private static void circle(MazeFile maze, long id, double radius, Appendable out) throws IOException {
+		int r = maze.rowOfId(id);
+		out.append("<circle cx=\"").append(number(x(maze, r, maze.colOfId(id)) + 0.5)).append("\" cy=\"")
+				.append(number(y(maze, r + 0.5))).append("\" r=\"").append(number(radius)).append("\"/>");
+	} // end of circle()
+
+	/**
+	 * Append the wall of a cell in direction dir to the path.
+	 */
+	private static void wall(MazeFile maze, long id, int dir, Appendable out) throws IOException {
+		int r = maze.rowOfId(id);
+		double x = x(maze, r, maze.colOfId(id));
+		double line[];
+		if (maze.type == Maze.HEX) {
+			double mid = r + 0.5;
+			switch (dir) {
+			case Maze.EAST:
+				line = new double[] { x + 1, mid - halfEdge, x + 1, mid + halfEdge };
+				break;
+			case Maze.NORTHEAST:
+				line = new double[] { x + 0.5, mid + 2 * halfEdge, x + 1, mid + halfEdge };
+				break;
+			case Maze.NORTHWEST:
+				line = new double[] { x + 0.5, mid + 2 * halfEdge, x, mid + halfEdge };
+				break;
+			case Maze.WEST:
+				line = new double[] { x, mid - halfEdge, x, mid + halfEdge };
+				break;
+			case Maze.SOUTHWEST:
+				line = new double[] { x, mid - halfEdge, x + 0.5, mid - 2 * halfEdge };
+				break;
+			default:
+				line = new double[] { x + 1, mid - halfEdge, x + 0.5, mid - 2 * halfEdge };
+			}
+		} else {
+			switch (dir) {
+			case Maze.EAST:
+				line = new double[] { x + 1, r, x + 1, r + 1 };
+				break;
+			case Maze.NORTH:
+				line = new double[] { x, r + 1, x + 1, r + 1 };
+				break;
+			case Maze.WEST:
+				line = new double[] { x, r, x, r + 1 };
+				break;
+			default:
+				line = new double[] { x, r, x + 1, r };
+			}
+		}
+		out.append('M').append(number(line[0])).append(' ').append(number(y(maze, line[1]))).append('L')
+				.append(number(line[2])).append(' ').append(number(y(maze, line[3])));
+	} // end of wall()
+
+	/**
+	 * Shortest decimal form of a coordinate, at most 3 decimals.
+	 */
+	private static String number(double value) {
+		String text = String.format(Locale.ROOT, "%.3f", value);
+		int end = text.length();
+		while (text.charAt(end - 1) == '0')
+			end--;
+		if (text.charAt(end - 1) == '.')
+			end--;
+		return text.substring(0, end);
+	} // end of number()
+
+} // end of class MazeSvg
@@ -0,0 +1,32 @@
+package maze;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A run of Maze.validate() on the footprints of a solver.
+ *
+ * @author Lettisia George
+ */
+@Name("maze.MazeValidated")
+@Label("Maze Validated")
+@Description("Validation of the footprints of a solver")
+public class MazeValidatedEvent extends MazeEvent {
+
+	@Label("Valid")
+	public boolean valid;
+
+	/**
+	 * End the validation and commit it if the recording asks for it.
+	 */
+	public void finish(Maze maze, boolean valid) {
+		end();
+		if (!shouldCommit())
+			return;
+		setMaze(maze);
+		this.valid = valid;
+		commit();
+	} // end of finish()
+
+} // end of class MazeValidatedEvent
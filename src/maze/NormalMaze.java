@@ -1,5 +1,6 @@
 package maze;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -14,9 +15,46 @@ import java.util.Queue;
 public class NormalMaze extends Maze {
 
 	/**
-	 * Boolean matrix to record visited cells by drawFtPrt(Cell)
+	 * Record of cells visited by drawFtPrt(Cell), by cell id
 	 */
-	protected boolean isRecorded[][];
+	protected boolean isRecorded[];
+
+	/**
+	 * Default number of buffered footprints before the buffer is flushed
+	 * regardless of the frame rate
+	 */
+	protected static final int FTPRT_BUFFER_SIZE = 4096;
+
+	/**
+	 * Ids of footprints waiting to be drawn, null if footprint batching is
+	 * switched off
+	 */
+	protected int ftPrtBuffer[] = null;
+
+	/**
+	 * Number of footprints in ftPrtBuffer
+	 */
+	protected int ftPrtCount = 0;
+
+	/**
+	 * Milliseconds between two flushes of the footprint buffer
+	 */
+	protected int ftPrtFrameTime = 0;
+
+	/**
+	 * Time (in milliseconds) at which the footprint buffer is flushed next
+	 */
+	protected long ftPrtNextFlush = 0;
+
+	/**
+	 * Walls of a lazy maze loaded from a file, null for an all-wall maze
+	 */
+	protected MazeFile wallSource = null;
+
+	/**
+	 * Every wall of the maze once, collected by the first reset()
+	 */
+	protected Wall walls[] = null;
 
 	public NormalMaze() {
 		type = NORMAL;
@@ -49,21 +87,167 @@ public class NormalMaze extends Maze {
 		return isIn(cell.r, cell.c);
 	} // end of isIn()
 
+	/**
+	 * Check whether the maze has neighbours in a direction.
+	 * 
+	 * @param dir
+	 *            A direction.
+	 * @return False for the diagonal directions of a rectangular maze.
+	 */
+	protected boolean hasDir(int dir) {
+		return dir != NORTHEAST && dir != SOUTHWEST;
+	} // end of hasDir()
+
+	/**
+	 * Column of map[r] holding the first cell of row r.
+	 * 
+	 * @param r
+	 *            Row coordinate
+	 * @return 0, hex mazes shift their rows.
+	 */
+	protected int firstCol(int r) {
+		return 0;
+	} // end of firstCol()
+
+	@Override
+	public int cellId(int r, int c) {
+		return r * sizeC + c - firstCol(r);
+	} // end of cellId()
+
+	@Override
+	public Cell cellAt(int id) {
+		int r = id / sizeC;
+		return cellAt(r, id - r * sizeC + firstCol(r));
+	} // end of cellAt()
+
+	@Override
+	public void resetVisited() {
+		for (int r = 0; r < sizeR; r++)
+			for (int c = firstCol(r); c < firstCol(r) + sizeC; c++)
+				if (map[r][c] != null)
+					map[r][c].visited = false;
+	} // end of resetVisited()
+
+	@Override
+	public void reset() {
+		if (isLazy)
+			throw new IllegalStateException("A lazy maze can not be reset.");
+		if (walls == null)
+			walls = collectWalls();
+		for (Wall wall : walls) {
+			wall.present = true;
+			wall.drawn = false;
+		}
+		resetVisited();
+		Arrays.fill(isRecorded, false);
+		ftPrtCount = 0;
+		counters.reset();
+	} // end of reset()
+
+	/**
+	 * Collect every wall once, in cell id order. A wall between two cells is
+	 * created by the cell owning directions EAST to NORTHWEST.
+	 * 
+	 * @return The walls.
+	 */
+	protected Wall[] collectWalls() {
+		int count = 0;
+		for (int id = 0; id < numCells(); id++)
+			for (int k = 0; k < NUM_DIR; k++)
+				if (ownsWall(cellAt(id), k))
+					count++;
+
+		Wall found[] = new Wall[count];
+		count = 0;
+		for (int id = 0; id < numCells(); id++)
+			for (int k = 0; k < NUM_DIR; k++)
+				if (ownsWall(cellAt(id), k))
+					found[count++] = cellAt(id).wall[k];
+		return found;
+	} // end of collectWalls()
+
+	private static boolean ownsWall(Cell cell, int dir) {
+		return cell.wall[dir] != null && (dir < NUM_DIR / 2 || cell.neigh[dir] == null);
+	} // end of ownsWall()
+
 	@Override
 	public boolean isOnEdge(int r, int c) {
 		return isIn(r, c) && (r == 0 || r == sizeR - 1 || c == 0 || c == sizeC - 1);
 	} // end of isOnEdge()
 
+	@Override
+	public Cell cellAt(int r, int c) {
+		if (!isIn(r, c))
+			return null;
+		Cell cell = map[r][c];
+		if (cell == null)
+			cell = materialise(r, c);
+		return cell;
+	} // end of cellAt()
+
+	@Override
+	public Cell neighbour(Cell cell, int dir) {
+		Cell next = cell.neigh[dir];
+		if (next == null && isLazy && hasDir(dir))
+			next = cellAt(cell.r + deltaR[dir], cell.c + deltaC[dir]);
+		return next;
+	} // end of neighbour()
+
+	/**
+	 * Build the cell at (r, c) of a lazy maze and wire it to the neighbours
+	 * already built. Walls towards neighbours not built yet are created here
+	 * and picked up by the neighbour when it is built.
+	 * 
+	 * @param r
+	 *            Row coordinate
+	 * @param c
+	 *            Column coordinate in map[r]
+	 * @return The new cell.
+	 */
+	protected Cell materialise(int r, int c) {
+		Cell cell = new Cell(r, c);
+		map[r][c] = cell;
+		for (int k = 0; k < NUM_DIR; k++) {
+			if (!hasDir(k))
+				continue;
+			int nr = r + deltaR[k];
+			int nc = c + deltaC[k];
+			Cell neigh = isIn(nr, nc) ? map[nr][nc] : null;
+			if (neigh != null) {
+				cell.wall[k] = neigh.wall[oppoDir[k]];
+				cell.neigh[k] = neigh;
+				neigh.neigh[oppoDir[k]] = cell;
+			} else {
+				cell.wall[k] = new Wall();
+				if (wallSource != null && isIn(nr, nc))
+					cell.wall[k].present = wallSource.isWallPresent(r, MazeFile.colOf(type, r, c), k);
+			}
+		}
+		return cell;
+	} // end of materialise()
+
+	/**
+	 * Build the tunnel index of the maze, once sizeR and sizeC are set.
+	 * 
+	 * @param tunnelList
+	 *            Tunnels as passed to initMaze().
+	 * @return An empty index, the maze has no tunnels.
+	 */
+	protected TunnelIndex indexTunnels(List<int[]> tunnelList) {
+		return new TunnelIndex(sizeR * sizeC);
+	} // end of indexTunnels()
+
 	@Override
 	public void initMaze(int rs, int cs, int entR, int entC, int exitR, int exitC, List<int[]> tunnelList) {
 		// set up maze constants
 		sizeR = rs;
 		sizeC = cs;
 		sizeTunnel = tunnelList.size();
+		tunnels = indexTunnels(tunnelList);
 
-		// set up map matrix
+		// set up map matrix, cells of a lazy maze are built on first access
 		map = new Cell[sizeR][sizeC];
-		for (int i = 0; i < sizeR; i++) {
+		for (int i = 0; i < sizeR && !isLazy; i++) {
 			for (int j = 0; j < sizeC; j++) {
 				Cell cell = new Cell(i, j);
 				map[i][j] = cell;
@@ -88,30 +272,41 @@ public class NormalMaze extends Maze {
 
 		// set up entrance and exit
 		if (isIn(entR, entC))
-			entrance = map[entR][entC];
+			entrance = cellAt(entR, entC);
 		if (isIn(exitR, exitC))
-			exit = map[exitR][exitC];
+			exit = cellAt(exitR, exitC);
 
-		// set up recording matrix for validation
-		isRecorded = new boolean[sizeR][sizeC];
+		// set up recording array for validation
+		isRecorded = new boolean[sizeR * sizeC];
+		walls = null;
 	} // end of initMaze()
 
 	@Override
 	public boolean isPerfect() {
-		boolean visited[][] = new boolean[sizeR][sizeC];
+		boolean visited[] = new boolean[sizeR * sizeC];
 		Queue<Cell> queue = new LinkedList<Cell>();
 
 		queue.add(entrance);
 
 		while (!queue.isEmpty()) {
 			Cell currCell = queue.poll();
-			visited[currCell.r][currCell.c] = true;
+			int id = cellId(currCell);
+			visited[id] = true;
 			int visitedNeigh = 0;
+			// cells of a tunnel maze are also connected to the other end of
+			// a tunnel
+			int other = tunnels.other(id);
+			if (other >= 0) {
+				if (visited[other])
+					visitedNeigh += 1;
+				else
+					queue.add(cellAt(other));
+			}
 			for (int i = 0; i < NUM_DIR; i++) {
-				Cell nextCell = currCell.neigh[i];
+				Cell nextCell = neighbour(currCell, i);
 				if (!isIn(nextCell) || currCell.wall[i].present)
 					continue;
-				if (visited[nextCell.r][nextCell.c])
+				if (visited[cellId(nextCell)])
 					visitedNeigh += 1;
 				else
 					queue.add(nextCell);
@@ -121,10 +316,9 @@ public class NormalMaze extends Maze {
 				return false;
 		}
 
-		for (int i = 0; i < sizeR; i++)
-			for (int j = 0; j < sizeC; j++)
-				if (!visited[i][j])
-					return false;
+		for (int i = 0; i < visited.length; i++)
+			if (!visited[i])
+				return false;
 
 		return true;
 	} // end of isPerfect()
@@ -138,14 +332,14 @@ public class NormalMaze extends Maze {
 		for (int i = 0; i < sizeR; i++)
 			for (int j = 0; j < sizeC; j++)
 				for (int k = 0; k < NUM_DIR; k++) {
-					if (map[i][j].wall[k] != null)
+					if (cellAt(i, j).wall[k] != null)
 						map[i][j].wall[k].drawn = false;
 				}
 
 		for (int k = 0; k < NUM_DIR; k++) {
 			if (k == 1 || k == 4)
 				continue;
-			if (entrance.neigh[k] == null) {
+			if (neighbour(entrance, k) == null) {
 				entrance.wall[k].drawn = true;
 				break;
 			}
@@ -154,7 +348,7 @@ public class NormalMaze extends Maze {
 		for (int k = 0; k < NUM_DIR; k++) {
 			if (k == 1 || k == 4)
 				continue;
-			if (exit.neigh[k] == null) {
+			if (neighbour(exit, k) == null) {
 				exit.wall[k].drawn = true;
 				break;
 			}
@@ -200,68 +394,153 @@ public class NormalMaze extends Maze {
 		}
 	} // end of draw()
 
+	/**
+	 * Horizontal position of the centre of cell (r, c) on the canvas.
+	 * 
+	 * @param r
+	 *            Row coordinate
+	 * @param c
+	 *            Column coordinate
+	 * @return x coordinate of the centre of the cell.
+	 */
+	protected double centreX(int r, int c) {
+		return c + 0.5;
+	} // end of centreX()
+
 	@Override
 	public void drawFtPrt(Cell cell) {
 		// record every cell drawn
-		isRecorded[cell.r][cell.c] = true;
+		isRecorded[cellId(cell)] = true;
 
 		// draw nothing if visualization is switched off
 		if (!isVisu)
 			return;
 
-		StdDraw.setPenColor(StdDraw.GRAY);
-		StdDraw.filledCircle(cell.c + 0.5, cell.r + 0.5, 0.25);
+		// unbatched, draw straight away
+		if (ftPrtBuffer == null) {
+			StdDraw.setPenColor(StdDraw.GRAY);
+			StdDraw.filledCircle(centreX(cell.r, cell.c), cell.r + 0.5, 0.25);
+			return;
+		}
+
+		ftPrtBuffer[ftPrtCount++] = cellId(cell);
+		if (ftPrtCount == ftPrtBuffer.length || System.currentTimeMillis() >= ftPrtNextFlush)
+			flushFtPrt();
 	} // end of drawFtPrt()
 
+	@Override
+	public void setFtPrtFrameRate(int frameRate) {
+		flushFtPrt();
+		if (frameRate <= 0) {
+			ftPrtBuffer = null;
+			ftPrtFrameTime = 0;
+			// leave animation mode, later drawing goes straight to screen
+			if (isVisu)
+				StdDraw.show();
+			return;
+		}
+
+		ftPrtBuffer = new int[FTPRT_BUFFER_SIZE];
+		ftPrtFrameTime = 1000 / frameRate;
+		ftPrtNextFlush = System.currentTimeMillis() + ftPrtFrameTime;
+	} // end of setFtPrtFrameRate()
+
+	@Override
+	public void flushFtPrt() {
+		if (ftPrtBuffer == null || ftPrtCount == 0)
+			return;
+
+		StdDraw.setPenColor(StdDraw.GRAY);
+		for (int i = 0; i < ftPrtCount; i++) {
+			Cell cell = cellAt(ftPrtBuffer[i]);
+			StdDraw.filledCircle(centreX(cell.r, cell.c), cell.r + 0.5, 0.25);
+		}
+		ftPrtCount = 0;
+
+		// show the frame and defer further drawing until the next one
+		StdDraw.show(ftPrtFrameTime);
+		ftPrtNextFlush = System.currentTimeMillis() + ftPrtFrameTime;
+	} // end of flushFtPrt()
+
+	/**
+	 * Print a validation message unless the maze is quiet.
+	 * 
+	 * @param message
+	 *            Message to print.
+	 */
+	protected void report(String message) {
+		if (isVerbose)
+			System.out.println(message);
+	} // end of report()
+
 	@Override
 	public boolean validate() {
+		MazeValidatedEvent event = MazeRecording.isActive() ? new MazeValidatedEvent() : null;
+		if (event != null)
+			event.begin();
 		boolean isValid = true;
 		int pathLength = 0;
 		int count = 0;
 
-		int stepCount[][] = new int[sizeR][sizeC];
+		int stepCount[] = new int[sizeR * sizeC];
 		Queue<Cell> queue = new LinkedList<Cell>();
 
 		queue.add(entrance);
-		stepCount[entrance.r][entrance.c] = 1;
+		stepCount[cellId(entrance)] = 1;
 
 		while (!queue.isEmpty()) {
 			Cell cell = queue.poll();
 			count++;
-			int step = stepCount[cell.r][cell.c];
+			int id = cellId(cell);
+			int step = stepCount[id];
 
+			// cells of a tunnel maze can also reach the other end of a tunnel
+			int other = tunnels.other(id);
+			if (other >= 0)
+				visitRecorded(cellAt(other), step, stepCount, queue);
 			for (int i = 0; i < Maze.NUM_DIR; i++) {
-				Cell next = cell.neigh[i];
-				if (next != null && !cell.wall[i].present && isRecorded[next.r][next.c]
-						&& stepCount[next.r][next.c] == 0) {
-					stepCount[next.r][next.c] = step + 1;
-					queue.add(next);
+				if (cell.wall[i] != null && !cell.wall[i].present) {
+					Cell next = neighbour(cell, i);
+					if (next != null)
+						visitRecorded(next, step, stepCount, queue);
 				}
 			}
 		}
 
-		if (stepCount[exit.r][exit.c] == 0) {
+		if (stepCount[cellId(exit)] == 0) {
 			isValid = false;
-			System.out.println("[Validation] Exit is not reached.");
+			report("[Validation] Exit is not reached.");
 		} else {
-			pathLength = stepCount[exit.r][exit.c];
+			pathLength = stepCount[cellId(exit)];
 		}
 
-		for (int i = 0; i < sizeR; i++) {
-			for (int j = 0; j < sizeC; j++) {
-				if (isValid && isRecorded[i][j] && stepCount[i][j] == 0) {
-					isValid = false;
-					System.out.println("[Validation] Visited cell not reachable.");
-				}
+		for (int i = 0; i < stepCount.length; i++) {
+			if (isValid && isRecorded[i] && stepCount[i] == 0) {
+				isValid = false;
+				report("[Validation] Visited cell not reachable.");
 			}
 		}
 
 		if (isValid) {
-			System.out.println("[Validation] Number of cells visited = " + count);
-			System.out.println("[Validation] Path length of the solution = " + pathLength);
+			report("[Validation] Number of cells visited = " + count);
+			report("[Validation] Path length of the solution = " + pathLength);
 		}
 
+		if (event != null)
+			event.finish(this, isValid);
 		return isValid;
 	} // end of validate()
 
+	/**
+	 * Step of validate(): queue a cell reached from a cell at distance step
+	 * if it was recorded and not reached before.
+	 */
+	private void visitRecorded(Cell next, int step, int stepCount[], Queue<Cell> queue) {
+		int id = cellId(next);
+		if (isRecorded[id] && stepCount[id] == 0) {
+			stepCount[id] = step + 1;
+			queue.add(next);
+		}
+	} // end of visitRecorded()
+
 } // end of class NormalMaze
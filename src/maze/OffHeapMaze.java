@@ -0,0 +1,430 @@
+package maze;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maze stored outside the Java heap, for mazes too large to build as Cell
+ * objects (10^9 cells and more).
+ *
+ * The walls are kept in the MazeFile layout, in direct buffers or in a file
+ * mapped read-write, so a maze generated into a file is a valid maze file
+ * once generation is done. Cells are addressed by their id r * sizeC + c (hex
+ * columns not shifted), and every cell also has a 4 bit mark that generators
+ * and solvers use as scratch state, e.g. visited flags or the direction back
+ * to the cell they came from (see back(long)). No objects are allocated per
+ * cell, so garbage collection does not depend on the size of the maze.
+ *
+ * The walls and marks are not synchronised, a maze must only be modified by
+ * one thread at a time.
+ *
+ * @author Lettisia George
+ */
+public class OffHeapMaze extends MazeFile {
+
+	/**
+	 * Largest value of a mark
+	 */
+	public static final int MAX_MARK = 15;
+
+	/**
+	 * Marks of depth first traversals: a cell not reached yet, one reached
+	 * through its tunnel and the cell a traversal started from. Marks 1 to
+	 * NUM_DIR are the direction back plus one.
+	 */
+	public static final int UNVISITED = 0;
+	public static final int VIA_TUNNEL = Maze.NUM_DIR + 1;
+	public static final int ROOT = Maze.NUM_DIR + 2;
+
+	/**
+	 * First int of a checkpoint file, "MZCK"
+	 */
+	public static final int CHECKPOINT_MAGIC = 0x4D5A434B;
+
+	/**
+	 * Marks of the cells, two per byte, split into chunks of CHUNK_SIZE bytes
+	 */
+	private final ByteBuffer marks[];
+
+	/**
+	 * @param chunks
+	 *            Header and wall bitmap in the MazeFile layout.
+	 * @param marks
+	 *            Zeroed buffers holding at least one nibble per cell.
+	 */
+	protected OffHeapMaze(ByteBuffer chunks[], ByteBuffer marks[]) throws IOException {
+		super(chunks);
+		this.marks = marks;
+	} // end of OffHeapMaze()
+
+	/**
+	 * Create an all-wall maze.
+	 *
+	 * @param type
+	 *            Maze.NORMAL, Maze.TUNNEL or Maze.HEX.
+	 * @param tunnelList
+	 *            Tunnels as {p1Row, p1Col, p2Row, p2Col}, as in the parameter
+	 *            files.
+	 * @param file
+	 *            File the walls are mapped from, overwritten if it exists, or
+	 *            null to keep them in direct buffers. Marks are then mapped
+	 *            from a temporary file next to it, so neither counts against
+	 *            the limit of direct memory.
+	 * @return The new maze.
+	 * @throws IOException
+	 *             if the file can not be created.
+	 */
+	public static OffHeapMaze create(int type, int sizeR, int sizeC, int entR, int entC, int exitR, int exitC,
+			List<int[]> tunnelList, File file) throws IOException {
+		if (sizeR < 1 || sizeC < 1)
+			throw new IllegalArgumentException("Row or column number of maze must be at least 1.");
+
+		int tunnels[] = new int[4 * tunnelList.size()];
+		for (int i = 0; i < tunnelList.size(); i++)
+			System.arraycopy(tunnelList.get(i), 0, tunnels, 4 * i, 4);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			writeHeader(out, type, sizeR, sizeC, entR, entC, exitR, exitC, tunnels);
+		}
+		byte header[] = bytes.toByteArray();
+		long bitmapSize = bitmapSize(sizeR, sizeC, bitsPerCell(type));
+		long marksSize = ((long) sizeR * sizeC + 1) / 2;
+
+		ByteBuffer chunks[];
+		ByteBuffer marks[];
+		if (file == null) {
+			chunks = allocate(header.length + bitmapSize);
+			marks = allocate(marksSize);
+		} else {
+			chunks = map(file, header.length + bitmapSize);
+			// File.createTempFile() rejects names shorter than 3 characters
+			File marksFile = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName() + "-",
+					".marks").toFile();
+			marks = map(marksFile, marksSize);
+			// the mapping outlives the file where the platform allows it
+			if (!marksFile.delete())
+				marksFile.deleteOnExit();
+		}
+
+		chunks[0].duplicate().put(header);
+		fill(chunks, header.length, header.length + bitmapSize, (byte) 0xFF);
+		fill(marks, 0, marksSize, (byte) 0);
+		return new OffHeapMaze(chunks, marks);
+	} // end of create()
+
+	/**
+	 * Add or remove the wall between a cell and its neighbour.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if there is no neighbour in direction dir.
+	 */
+	public void setWallPresent(long id, int dir, boolean present) {
+		long bit = wallBit(id, dir);
+		if (bit < 0)
+			throw new IllegalArgumentException("Walls on the boundary of the maze can not be changed.");
+		long pos = bitmapOffset + (bit >>> 3);
+		ByteBuffer chunk = bitmap[(int) (pos >>> CHUNK_BITS)];
+		int index = (int) (pos & (CHUNK_SIZE - 1));
+		int mask = 1 << (bit & 7);
+		chunk.put(index, (byte) (present ? chunk.get(index) | mask : chunk.get(index) & ~mask));
+	} // end of setWallPresent()
+
+	/**
+	 * Overwrite the wall bits of consecutive cells at once, for generators
+	 * deciding whole rows. Bit i * bitsPerCell + s of bits is bit s of cell id
+	 * + i, in the order of the MazeFile bitmap: slot 0 is the east wall, slot 1
+	 * the north (northeast for hex) wall and slot 2 the northwest wall. Bits of
+	 * walls on the boundary are stored too, and should be left set.
+	 *
+	 * @param id
+	 *            Id of the first cell.
+	 * @param count
+	 *            Number of cells, at most 64 / bitsPerCell.
+	 * @param bits
+	 *            The wall bits, a set bit is a present wall.
+	 */
+	public void setWallBits(long id, int count, long bits) {
+		int n = count * bitsPerCell;
+		if (n > Long.SIZE || id < 0 || id + count > numCells())
+			throw new IllegalArgumentException("Cells " + id + " to " + (id + count - 1) + " can not be written.");
+		long bit = id * bitsPerCell;
+		long pos = bitmapOffset + (bit >>> 3);
+		int shift = (int) (bit & 7);
+		int done = 0;
+		while (done < n) {
+			ByteBuffer chunk = bitmap[(int) (pos >>> CHUNK_BITS)];
+			int index = (int) (pos & (CHUNK_SIZE - 1));
+			int width = Math.min(8 - shift, n - done);
+			int mask = (1 << width) - 1 << shift;
+			int value = (int) (bits >>> done) << shift & mask;
+			chunk.put(index, (byte) (width == 8 ? value : chunk.get(index) & ~mask | value));
+			done += width;
+			shift = 0;
+			pos++;
+		}
+	} // end of setWallBits()
+
+	/**
+	 * @return The mark of the cell, 0 after create() and clearMarks().
+	 */
+	public int getMark(long id) {
+		int shift = (int) (id & 1) << 2;
+		return marks[(int) (id >>> (CHUNK_BITS + 1))].get((int) ((id >>> 1) & (CHUNK_SIZE - 1))) >>> shift & MAX_MARK;
+	} // end of getMark()
+
+	/**
+	 * @param mark
+	 *            Value between 0 and MAX_MARK.
+	 */
+	public void setMark(long id, int mark) {
+		int shift = (int) (id & 1) << 2;
+		ByteBuffer chunk = marks[(int) (id >>> (CHUNK_BITS + 1))];
+		int index = (int) ((id >>> 1) & (CHUNK_SIZE - 1));
+		chunk.put(index, (byte) (chunk.get(index) & ~(MAX_MARK << shift) | (mark & MAX_MARK) << shift));
+	} // end of setMark()
+
+	/**
+	 * Mark a cell as reached from its neighbour in direction dir.
+	 */
+	public void setBack(long id, int dir) {
+		setMark(id, dir + 1);
+	} // end of setBack()
+
+	/**
+	 * Follow the mark of a cell back in a depth first traversal.
+	 *
+	 * @return The cell it was reached from, -1 for the ROOT.
+	 */
+	public long back(long id) {
+		int mark = getMark(id);
+		if (mark == ROOT)
+			return -1;
+		if (mark == VIA_TUNNEL)
+			return tunnel(id);
+		return neighbour(id, mark - 1);
+	} // end of back()
+
+	/**
+	 * Check the marks left by a solver form a path through open walls and
+	 * tunnels from the exit back to the entrance.
+	 *
+	 * @return Number of cells on the path, -1 if there is no such path.
+	 */
+	public long pathLength() {
+		long length = 1;
+		long id = exitId();
+		while (id != entranceId()) {
+			int mark = getMark(id);
+			long prev = back(id);
+			if (mark == UNVISITED || prev < 0 || length > numCells())
+				return -1;
+			if (mark != VIA_TUNNEL && isWallPresent(id, mark - 1))
+				return -1;
+			id = prev;
+			length++;
+		}
+		return getMark(id) == ROOT ? length : -1;
+	} // end of pathLength()
+
+	/**
+	 * Reset the mark of every cell to 0.
+	 */
+	public void clearMarks() {
+		fill(marks, 0, (numCells() + 1) / 2, (byte) 0);
+	} // end of clearMarks()
+
+	/**
+	 * Write the walls of a file-backed maze through to the file.
+	 */
+	public void force() {
+		for (ByteBuffer chunk : bitmap)
+			if (chunk instanceof MappedByteBuffer)
+				((MappedByteBuffer) chunk).force();
+	} // end of force()
+
+	/**
+	 * Save the walls and marks, with the state of the generator building the
+	 * maze, so a job that is killed can resume from them (see
+	 * readCheckpoint(File)). The checkpoint is written to a temporary file
+	 * that is then renamed over file, so a job killed while writing it leaves
+	 * the previous checkpoint intact.
+	 * <p>
+	 * Layout: CHECKPOINT_MAGIC, the number of longs of state and the state,
+	 * followed by the maze in the MazeFile layout and the marks.
+	 *
+	 * @param file
+	 *            File to write, replaced if it exists.
+	 * @param state
+	 *            State of the generator, e.g. its seed, the counter of its
+	 *            random stream and the cell it is at.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	public void writeCheckpoint(File file, long state[]) throws IOException {
+		File tmp = checkpointTemp(file);
+		try {
+			try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+				ByteBuffer head = ByteBuffer.allocate(2 * Integer.BYTES + state.length * Long.BYTES);
+				head.putInt(CHECKPOINT_MAGIC).putInt(state.length);
+				for (long value : state)
+					head.putLong(value);
+				head.flip();
+				while (head.hasRemaining())
+					out.write(head);
+				transfer(out, bitmap, bitmapOffset + bitmapSize(sizeR, sizeC, bitsPerCell), true);
+				transfer(out, marks, (numCells() + 1) / 2, true);
+				out.force(true);
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmp.delete();
+		}
+	} // end of writeCheckpoint()
+
+	/**
+	 * Check checkpoints can be written to a file, by creating and deleting the
+	 * temporary file writeCheckpoint(File, long[]) writes first, so a bad name
+	 * or directory fails when a job starts rather than at its first
+	 * checkpoint.
+	 *
+	 * @param file
+	 *            File the checkpoints are to be written to.
+	 * @throws IOException
+	 *             if the temporary file can not be created.
+	 */
+	public static void checkCheckpoint(File file) throws IOException {
+		Files.delete(checkpointTemp(file).toPath());
+	} // end of checkCheckpoint()
+
+	/**
+	 * Create the temporary file a checkpoint is written to before it is
+	 * renamed to file, in the same directory.
+	 */
+	private static File checkpointTemp(File file) throws IOException {
+		// File.createTempFile() rejects names shorter than 3 characters
+		return Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName() + "-", ".tmp")
+				.toFile();
+	} // end of checkpointTemp()
+
+	/**
+	 * Restore the walls and marks saved by writeCheckpoint(File, long[]).
+	 *
+	 * @param file
+	 *            Checkpoint of a maze with the same header as this one, i.e.
+	 *            created from the same parameters.
+	 * @return The state of the generator saved with them.
+	 * @throws IOException
+	 *             if the file can not be read or is not a checkpoint of this
+	 *             maze. The walls and marks may then be partly overwritten.
+	 */
+	public long[] readCheckpoint(File file) throws IOException {
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer head = ByteBuffer.allocate(2 * Integer.BYTES);
+			read(in, head);
+			if (head.getInt(0) != CHECKPOINT_MAGIC || head.getInt(4) < 0 || head.getInt(4) > 1 << 16)
+				throw new IOException(file + " is not a maze checkpoint.");
+			ByteBuffer values = ByteBuffer.allocate(head.getInt(4) * Long.BYTES);
+			read(in, values);
+			long state[] = new long[head.getInt(4)];
+			for (int i = 0; i < state.length; i++)
+				state[i] = values.getLong(i * Long.BYTES);
+
+			ByteBuffer header = ByteBuffer.allocate((int) bitmapOffset);
+			read(in, header);
+			ByteBuffer own = bitmap[0].duplicate();
+			own.position(0).limit((int) bitmapOffset);
+			if (!header.flip().equals(own))
+				throw new IOException(file + " is a checkpoint of another maze.");
+			in.position(in.position() - bitmapOffset);
+			transfer(in, bitmap, bitmapOffset + bitmapSize(sizeR, sizeC, bitsPerCell), false);
+			transfer(in, marks, (numCells() + 1) / 2, false);
+			return state;
+		}
+	} // end of readCheckpoint()
+
+	// auxiliary functions
+	/**
+	 * Write the first size bytes of chunked buffers to a channel, or read
+	 * them from it.
+	 */
+	private static void transfer(FileChannel channel, ByteBuffer chunks[], long size, boolean isWrite)
+			throws IOException {
+		for (int i = 0; size > 0; i++) {
+			ByteBuffer chunk = chunks[i].duplicate();
+			chunk.position(0).limit((int) Math.min(CHUNK_SIZE, size));
+			size -= chunk.remaining();
+			if (isWrite) {
+				while (chunk.hasRemaining())
+					channel.write(chunk);
+			} else {
+				read(channel, chunk);
+			}
+		}
+	} // end of transfer()
+
+	/**
+	 * Fill the remaining bytes of a buffer from a channel.
+	 *
+	 * @throws IOException
+	 *             if the channel ends first.
+	 */
+	private static void read(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			if (channel.read(buffer) < 0)
+				throw new IOException("Checkpoint is truncated.");
+	} // end of read()
+
+	/**
+	 * Direct buffers of size bytes in total, in chunks of CHUNK_SIZE bytes.
+	 */
+	private static ByteBuffer[] allocate(long size) {
+		ByteBuffer chunks[] = new ByteBuffer[(int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+		for (int i = 0; i < chunks.length; i++)
+			chunks[i] = ByteBuffer.allocateDirect((int) Math.min(CHUNK_SIZE, size - i * CHUNK_SIZE));
+		return chunks;
+	} // end of allocate()
+
+	/**
+	 * Map a file of size bytes read-write, in chunks of CHUNK_SIZE bytes.
+	 */
+	private static ByteBuffer[] map(File file, long size) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			raf.setLength(size);
+			ByteBuffer chunks[] = new ByteBuffer[(int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+			for (int i = 0; i < chunks.length; i++) {
+				long pos = i * CHUNK_SIZE;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, pos, Math.min(CHUNK_SIZE, size - pos));
+			}
+			return chunks;
+		}
+	} // end of map()
+
+	/**
+	 * Set bytes from to to - 1 of chunked buffers to value.
+	 */
+	private static void fill(ByteBuffer chunks[], long from, long to, byte value) {
+		byte block[] = new byte[1 << 16];
+		Arrays.fill(block, value);
+		while (from < to) {
+			ByteBuffer chunk = chunks[(int) (from >>> CHUNK_BITS)].duplicate();
+			int index = (int) (from & (CHUNK_SIZE - 1));
+			int length = (int) Math.min(Math.min(block.length, to - from), chunk.capacity() - index);
+			chunk.position(index);
+			chunk.put(block, 0, length);
+			from += length;
+		}
+	} // end of fill()
+
+} // end of class OffHeapMaze
@@ -0,0 +1,153 @@
+package maze;
+
+import java.util.Arrays;
+
+/**
+ * Index of the tunnels of a maze by cell id (see Maze.cellId(int, int)).
+ * Tunnel i connects cells from(i) and to(i), kept in two parallel int arrays
+ * in the order they were added. A bitmap of the tunnel ends answers "is this
+ * cell a tunnel end" with one bit test, and an open addressing hash table
+ * from every end to the other end answers "where does this tunnel lead", so
+ * both take constant time however many tunnels there are. The index takes
+ * numCells / 8 bytes plus at most 72 bytes per tunnel.
+ *
+ * @author Lettisia George
+ */
+public class TunnelIndex {
+
+	/**
+	 * Ends of the tunnels
+	 */
+	private final int from[];
+	private final int to[];
+
+	/**
+	 * Bit id is set if cell id is a tunnel end
+	 */
+	private final long isEnd[];
+
+	/**
+	 * Hash table of the tunnel ends, by linear probing, and of the other end
+	 * of every end. Empty slots hold -1.
+	 */
+	private final int keys[];
+	private final int others[];
+	private final int mask;
+	private final int shift;
+
+	/**
+	 * An index without tunnels.
+	 *
+	 * @param numCells
+	 *            Number of cells of the maze.
+	 */
+	public TunnelIndex(int numCells) {
+		this(numCells, new int[0]);
+	} // end of TunnelIndex()
+
+	/**
+	 * @param numCells
+	 *            Number of cells of the maze.
+	 * @param ends
+	 *            Ends of the tunnels as {from0, to0, from1, to1, ...}.
+	 * @throws IllegalArgumentException
+	 *             if an end is not a cell or is the end of two tunnels.
+	 */
+	public TunnelIndex(int numCells, int ends[]) {
+		int numTunnels = ends.length / 2;
+		from = new int[numTunnels];
+		to = new int[numTunnels];
+		isEnd = new long[(numCells + 63) / 64];
+
+		// at most half full
+		int capacity = Integer.highestOneBit(Math.max(4 * numTunnels, 2) - 1) << 1;
+		keys = new int[capacity];
+		others = new int[capacity];
+		mask = capacity - 1;
+		shift = Integer.numberOfLeadingZeros(mask);
+		Arrays.fill(keys, -1);
+
+		for (int i = 0; i < numTunnels; i++) {
+			from[i] = ends[2 * i];
+			to[i] = ends[2 * i + 1];
+			add(from[i], to[i], numCells);
+			add(to[i], from[i], numCells);
+		}
+	} // end of TunnelIndex()
+
+	/**
+	 * @return Number of tunnels.
+	 */
+	public int size() {
+		return from.length;
+	} // end of size()
+
+	/**
+	 * @return Id of the first end of tunnel i.
+	 */
+	public int from(int i) {
+		return from[i];
+	} // end of from()
+
+	/**
+	 * @return Id of the second end of tunnel i.
+	 */
+	public int to(int i) {
+		return to[i];
+	} // end of to()
+
+	/**
+	 * @return True if cell id is the end of a tunnel.
+	 */
+	public boolean isEnd(int id) {
+		return (isEnd[id >>> 6] & 1L << id) != 0;
+	} // end of isEnd()
+
+	/**
+	 * @return Id of the other end of the tunnel at cell id, -1 if there is
+	 *         no tunnel at the cell.
+	 */
+	public int other(int id) {
+		if (!isEnd(id))
+			return -1;
+		int slot = slotOf(id);
+		while (keys[slot] != id)
+			slot = slot + 1 & mask;
+		return others[slot];
+	} // end of other()
+
+	/**
+	 * @return The tunnel ends as {from0, to0, from1, to1, ...}, as taken by
+	 *         the constructor.
+	 */
+	public int[] toArray() {
+		int ends[] = new int[2 * from.length];
+		for (int i = 0; i < from.length; i++) {
+			ends[2 * i] = from[i];
+			ends[2 * i + 1] = to[i];
+		}
+		return ends;
+	} // end of toArray()
+
+	// auxiliary functions
+	private void add(int id, int other, int numCells) {
+		if (id < 0 || id >= numCells)
+			throw new IllegalArgumentException("Tunnel end " + id + " is not a cell of the maze.");
+		if (isEnd(id))
+			throw new IllegalArgumentException("Cell " + id + " is the end of two tunnels.");
+		isEnd[id >>> 6] |= 1L << id;
+		int slot = slotOf(id);
+		while (keys[slot] != -1)
+			slot = slot + 1 & mask;
+		keys[slot] = id;
+		others[slot] = other;
+	} // end of add()
+
+	/**
+	 * Home slot of an id, Fibonacci hashing.
+	 */
+	private int slotOf(int id) {
+		return id * 0x9E3779B9 >>> shift;
+	} // end of slotOf()
+
+} // end of class TunnelIndex
@@ -10,59 +10,47 @@ import java.util.*;
  *
  */
 public class TunnelMaze extends NormalMaze {
+
 	public TunnelMaze() {
 		type = TUNNEL;
 	} // end of TunnelMaze()
 
+	@Override
+	protected TunnelIndex indexTunnels(List<int[]> tunnelList) {
+		int ends[] = new int[2 * tunnelList.size()];
+		for (int i = 0; i < tunnelList.size(); i++) {
+			int tunnel[] = tunnelList.get(i);
+			if (!isIn(tunnel[0], tunnel[1]) || !isIn(tunnel[2], tunnel[3]))
+				throw new IllegalArgumentException("Tunnel end is outside the maze.");
+			ends[2 * i] = cellId(tunnel[0], tunnel[1]);
+			ends[2 * i + 1] = cellId(tunnel[2], tunnel[3]);
+		}
+		return new TunnelIndex(sizeR * sizeC, ends);
+	} // end of indexTunnels()
+
 	@Override
 	public void initMaze(int rs, int cs, int entR, int entC, int exitR, int exitC, List<int[]> tunnelList) {
 		super.initMaze(rs, cs, entR, entC, exitR, exitC, tunnelList);
-		for (int i = 0; i < tunnelList.size(); i++) {
-			map[tunnelList.get(i)[0]][tunnelList.get(i)[1]].tunnelTo = map[tunnelList.get(i)[2]][tunnelList.get(i)[3]];
-			map[tunnelList.get(i)[2]][tunnelList.get(i)[3]].tunnelTo = map[tunnelList.get(i)[0]][tunnelList.get(i)[1]];
+		// tunnels of a lazy maze are wired as their cells are built
+		for (int i = 0; i < tunnels.size() && !isLazy; i++) {
+			Cell from = cellAt(tunnels.from(i));
+			Cell to = cellAt(tunnels.to(i));
+			from.tunnelTo = to;
+			to.tunnelTo = from;
 		}
 	} // end of initMaze()
-	
+
 	@Override
-	public boolean isPerfect() {
-		boolean visited[][] = new boolean[sizeR][sizeC];
-		Queue<Cell> queue = new LinkedList<Cell>();
-		
-		queue.add(entrance);
-		
-		while (!queue.isEmpty()) {
-			Cell cell = queue.poll();
-			Cell next = null;
-			visited[cell.r][cell.c] = true;
-			int visitedNeigh = 0;
-			if (cell.tunnelTo != null) {
-				next = cell.tunnelTo;
-				if (visited[next.r][next.c])
-					visitedNeigh += 1; 
-				else
-					queue.add(next);
-			}
-			for (int i = 0; i < NUM_DIR; i++) {
-				next = cell.neigh[i];
-				if (!isIn(next) || cell.wall[i].present)
-					continue;
-				if (visited[next.r][next.c])
-					visitedNeigh += 1; 
-				else
-					queue.add(next);
-			}
-			
-			if (visitedNeigh > 1)
-				return false;
+	protected Cell materialise(int r, int c) {
+		Cell cell = super.materialise(r, c);
+		int other = tunnels.other(cellId(r, c));
+		if (other >= 0) {
+			// builds the other end, which finds this one already built
+			cell.tunnelTo = cellAt(other);
+			cell.tunnelTo.tunnelTo = cell;
 		}
-		
-		for (int i = 0; i < sizeR; i++)
-			for (int j = 0; j < sizeC; j++)
-				if (!visited[i][j])
-					return false;
-		
-		return true;
-	} // end of isPerfect()
+		return cell;
+	} // end of materialise()
 	
 	@Override
 	public void draw() {
@@ -77,89 +65,27 @@ public class TunnelMaze extends NormalMaze {
 		// draw the maze
 		super.draw();
 		
-		List<Cell> drawnTunnels = new ArrayList<Cell>();
-		
-		int numTunnelDrawn = 0;
-		
 		// draw the tunnels
-		for (int r = 0; r < sizeR; r++) {
-			for (int c = 0; c < sizeC; c++) {
-				if (map[r][c].tunnelTo != null && !drawnTunnels.contains(map[r][c])) {
-					StdDraw.setPenColor(colors[numTunnelDrawn % colors.length]);
-					StdDraw.setPenRadius(0.005);
-					StdDraw.line(c+0.9, r+0.1, c+0.9, r+0.9);
-					StdDraw.line(c+0.1, r+0.9, c+0.9, r+0.9);
-					StdDraw.line(c+0.1, r+0.1, c+0.1, r+0.9);
-					StdDraw.line(c+0.1, r+0.1, c+0.9, r+0.1);
-					int rr = map[r][c].tunnelTo.r;
-					int cc = map[r][c].tunnelTo.c;
-					StdDraw.line(cc+0.9, rr+0.1, cc+0.9, rr+0.9);
-					StdDraw.line(cc+0.1, rr+0.9, cc+0.9, rr+0.9);
-					StdDraw.line(cc+0.1, rr+0.1, cc+0.1, rr+0.9);
-					StdDraw.line(cc+0.1, rr+0.1, cc+0.9, rr+0.1);
-					drawnTunnels.add(map[r][c].tunnelTo);
-					StdDraw.setPenRadius();
-					numTunnelDrawn++;
-				}
-			}
+		StdDraw.setPenRadius(0.005);
+		for (int i = 0; i < tunnels.size(); i++) {
+			StdDraw.setPenColor(colors[i % colors.length]);
+			drawTunnelEnd(cellAt(tunnels.from(i)));
+			drawTunnelEnd(cellAt(tunnels.to(i)));
 		}
+		StdDraw.setPenRadius();
 	} // end of draw()
 
+	/**
+	 * Draw a square inside the cell at the end of a tunnel.
+	 */
+	private void drawTunnelEnd(Cell cell) {
+		int r = cell.r;
+		int c = cell.c;
+		StdDraw.line(c+0.9, r+0.1, c+0.9, r+0.9);
+		StdDraw.line(c+0.1, r+0.9, c+0.9, r+0.9);
+		StdDraw.line(c+0.1, r+0.1, c+0.1, r+0.9);
+		StdDraw.line(c+0.1, r+0.1, c+0.9, r+0.1);
+	} // end of drawTunnelEnd()
 
-        @Override
-        public boolean validate() {
-                boolean isValid = true;
-                int pathLength = 0;
-                int count = 0;
-
-                int stepCount[][] = new int[sizeR][sizeC];
-                Queue<Cell> queue = new LinkedList<Cell>();
-
-                queue.add(entrance);
-                stepCount[entrance.r][entrance.c] = 1;
-
-                while (!queue.isEmpty()) {
-                        Cell cell = queue.poll();
-                        count++;
-                        int step = stepCount[cell.r][cell.c];
-
-                        if (cell.tunnelTo != null && isRecorded[cell.tunnelTo.r][cell.tunnelTo.c] && stepCount[cell.tunnelTo.r][cell.tunnelTo.c] == 0) {
-                                stepCount[cell.tunnelTo.r][cell.tunnelTo.c] = step + 1;
-                                queue.add(cell.tunnelTo);
-                        }
-
-                        for (int i = 0; i < Maze.NUM_DIR; i++) {
-                                Cell next = cell.neigh[i];
-                                if (next != null && !cell.wall[i].present && isRecorded[next.r][next.c] && stepCount[next.r][next.c] == 0) {
-                                        stepCount[next.r][next.c] = step + 1;
-                                        queue.add(next);
-                                }
-                        }
-                }
-
-                if (stepCount[exit.r][exit.c] == 0) {
-                        isValid = false;
-                        System.out.println("[Validation] Exit is not reached.");
-                }
-                else {
-                        pathLength = stepCount[exit.r][exit.c];
-                }
-
-                for (int i = 0; i < sizeR; i++){
-                        for (int j = 0; j < sizeC; j++) {
-                                if (isValid && isRecorded[i][j] && stepCount[i][j] == 0) {
-                                        isValid = false;
-                                        System.out.println("[Validation] Visited cell not reachable.");
-                                }
-                        }
-                }
-
-                if (isValid) {
-                        System.out.println("[Validation] Number of cells visited = " + count);
-                        System.out.println("[Validation] Path length of the solution = " + pathLength);
-                }
-
-                return isValid;
-        } // end of validate()
 
 } // end of class TunnelMaze
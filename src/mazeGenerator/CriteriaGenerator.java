@@ -0,0 +1,370 @@
+package mazeGenerator;
+
+import maze.Cell;
+import maze.Maze;
+import maze.MazeCounters;
+import maze.MazeFile;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a generator to generate mazes until one has a solution length and a
+ * number of dead ends in target ranges, e.g. to get mazes of a difficulty.
+ * <p>
+ * Candidate i is generated with seed new MazeRandom(seed).split(i).nextLong(),
+ * as in MazeBulkGenerator, SLICE_STEPS steps at a time (see MazeStepper),
+ * while a WallListener (see MazeCounters) follows the walls removed. A
+ * candidate is rejected as soon as the targets provably can not be met, and
+ * the next one is tried:
+ * - Passages of a cell are never closed again, so a cell with two or more
+ * can not end up a dead end, and a tree of two or more cells has
+ * 2 + sum(passages - 2) dead ends, summed over cells with more than two
+ * passages, which only grows. This bounds the dead ends of the finished maze
+ * from both sides.
+ * - Passages never close a cycle, so once the entrance and the exit are
+ * joined (found with a union-find of the cells) the path between them is the
+ * solution, and its length is known from one breadth first search.
+ * <p>
+ * With several threads, candidates are tried in parallel, each thread
+ * generating in its own copy of the maze. The candidate accepted is the first
+ * one meeting the targets whatever the number of threads, and is generated
+ * again in the maze given.
+ *
+ * @author Lettisia George
+ */
+public class CriteriaGenerator implements MazeGenerator {
+
+    /**
+     * Steps run between checks of the targets
+     */
+    public static final int SLICE_STEPS = 1 << 10;
+
+    private final String generatorName;
+    private final MazeGenerator mazeGen;
+    private final int minSolution;
+    private final int maxSolution;
+    private final long minDeadEnds;
+    private final long maxDeadEnds;
+    private final int maxCandidates;
+    private final int numThreads;
+
+    /**
+     * Index and seed of the candidate last accepted
+     */
+    private int accepted = -1;
+    private long acceptedSeed = 0;
+
+    /**
+     * @param generatorName Generator of the candidates, see
+     *                      MazeGenerator.forName().
+     * @param minSolution   Fewest cells on the solution, the entrance and the
+     *                      exit included (see MazeMetrics.solutionLength).
+     * @param maxSolution   Most cells on the solution.
+     * @param minDeadEnds   Fewest cells with one passage.
+     * @param maxDeadEnds   Most cells with one passage.
+     * @param maxCandidates Number of candidates tried before giving up.
+     * @param numThreads    Number of threads trying candidates.
+     * @throws IllegalArgumentException if the generator is unknown or a range
+     *                                  is empty.
+     */
+    public CriteriaGenerator(String generatorName, int minSolution, int maxSolution, long minDeadEnds,
+                             long maxDeadEnds, int maxCandidates, int numThreads) {
+        if (minSolution > maxSolution || minDeadEnds > maxDeadEnds || maxCandidates < 1)
+            throw new IllegalArgumentException("Empty range of solution lengths, dead ends or candidates.");
+        this.generatorName = generatorName;
+        this.mazeGen = MazeGenerator.forName(generatorName);
+        this.minSolution = minSolution;
+        this.maxSolution = maxSolution;
+        this.minDeadEnds = minDeadEnds;
+        this.maxDeadEnds = maxDeadEnds;
+        this.maxCandidates = maxCandidates;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no candidate meets the targets, or
+     *                                  the generator does not support the
+     *                                  maze type.
+     */
+    @Override
+    public void generateMaze(Maze maze, long seed) {
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+
+        MazeRandom seeds = new MazeRandom(seed);
+        AtomicInteger first = new AtomicInteger(maxCandidates);
+        if (numThreads <= 1)
+            search(maze, mazeGen, seeds, new AtomicInteger(), first);
+        else
+            searchParallel(maze, seeds, first);
+        if (first.get() == maxCandidates)
+            throw new IllegalArgumentException("No maze met the targets in " + maxCandidates + " candidates.");
+        accepted = first.get();
+        acceptedSeed = seeds.split(accepted).nextLong();
+        if (numThreads > 1)
+            mazeGen.stepper(maze, acceptedSeed).finish();
+
+        if (event != null)
+            event.finish(maze, this, seed);
+    } // end of generateMaze()
+
+    /**
+     * @return Index of the candidate last accepted, -1 if none.
+     */
+    public int acceptedCandidate() {
+        return accepted;
+    } // end of acceptedCandidate()
+
+    /**
+     * @return Seed of the inner generator that gave the maze last accepted.
+     */
+    public long acceptedSeed() {
+        return acceptedSeed;
+    } // end of acceptedSeed()
+
+    /**
+     * Try the candidates taken from next in a maze until one is accepted or
+     * every candidate before the first accepted one is taken.
+     *
+     * @param maze  An all-wall maze, left holding the candidate accepted.
+     * @param next  Index of the next candidate to take.
+     * @param first Index of the first candidate accepted, maxCandidates if
+     *              none.
+     */
+    private void search(Maze maze, MazeGenerator gen, MazeRandom seeds, AtomicInteger next, AtomicInteger first) {
+        Tracker tracker = new Tracker(maze, first);
+        boolean isFresh = true;
+        for (int i = next.getAndIncrement(); i < first.get(); i = next.getAndIncrement()) {
+            if (!isFresh)
+                maze.reset();
+            isFresh = false;
+            if (tracker.generate(gen, seeds.split(i).nextLong(), i)) {
+                first.accumulateAndGet(i, Math::min);
+                return;
+            }
+        }
+    } // end of search()
+
+    /**
+     * Search on numThreads threads, each with its own copy of the maze and
+     * generator.
+     */
+    private void searchParallel(Maze maze, MazeRandom seeds, AtomicInteger first) {
+        byte shape[] = MazeFile.encode(maze);
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            results.add(pool.submit(() -> {
+                Maze copy = MazeFile.decode(shape).load();
+                copy.isVisu = false;
+                copy.isVerbose = false;
+                search(copy, MazeGenerator.forName(generatorName), seeds, next, first);
+                return null;
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    } // end of searchParallel()
+
+    /**
+     * Passages of every cell of a maze being generated, and the sets of cells
+     * they join.
+     */
+    private class Tracker implements MazeCounters.WallListener {
+        private final Maze maze;
+        private final AtomicInteger first;
+        private final int numCells;
+        private final byte passages[];
+
+        /**
+         * Union-find of the cells joined by passages, by rank
+         */
+        private final int parent[];
+        private final byte rank[];
+
+        /**
+         * Cells with one passage, with two or more, and the sum of passages
+         * - 2 over cells with more than two
+         */
+        private long deadEnds;
+        private long joined;
+        private long excess;
+
+        /**
+         * Queue of the breadth first search, and the cell each cell of it was
+         * reached from, built on first use
+         */
+        private int queue[] = null;
+        private int from[] = null;
+
+        Tracker(Maze maze, AtomicInteger first) {
+            this.maze = maze;
+            this.first = first;
+            numCells = maze.numCells();
+            passages = new byte[numCells];
+            parent = new int[numCells];
+            rank = new byte[numCells];
+        }
+
+        /**
+         * Generate candidate index, stopping as soon as it is rejected.
+         *
+         * @return true if the candidate meets the targets.
+         */
+        boolean generate(MazeGenerator gen, long seed, int index) {
+            start();
+            int entrance = maze.cellId(maze.entrance);
+            int exit = maze.cellId(maze.exit);
+            int solution = -1;
+            maze.counters.setWallListener(this);
+            try {
+                MazeStepper stepper = gen.stepper(maze, seed);
+                boolean isDone = false;
+                while (!isDone) {
+                    isDone = stepper.step(SLICE_STEPS);
+                    // a candidate after one accepted can not be chosen
+                    if (first.get() < index)
+                        return false;
+                    if (solution < 0 && find(entrance) == find(exit))
+                        solution = solutionLength(entrance, exit);
+                    if (solution >= 0 && (solution < minSolution || solution > maxSolution))
+                        return false;
+                    if (numCells - joined < minDeadEnds || numCells >= 2 && 2 + excess > maxDeadEnds)
+                        return false;
+                }
+            } finally {
+                maze.counters.setWallListener(null);
+            }
+            return solution >= 0 && deadEnds >= minDeadEnds && deadEnds <= maxDeadEnds;
+        }
+
+        @Override
+        public void wallRemoved(Cell cell, int dir) {
+            int id = maze.cellId(cell);
+            int neighId = maze.cellId(maze.neighbour(cell, dir));
+            addPassage(id);
+            addPassage(neighId);
+            union(id, neighId);
+        }
+
+        /**
+         * Start from an all-wall maze, where only tunnels are passages.
+         */
+        private void start() {
+            Arrays.fill(passages, (byte) 0);
+            Arrays.fill(rank, (byte) 0);
+            for (int id = 0; id < numCells; id++)
+                parent[id] = id;
+            deadEnds = 0;
+            joined = 0;
+            excess = 0;
+            for (int id = 0; id < numCells; id++) {
+                Cell cell = maze.cellAt(id);
+                if (cell.tunnelTo != null) {
+                    addPassage(id);
+                    union(id, maze.cellId(cell.tunnelTo));
+                }
+            }
+        }
+
+        private void addPassage(int id) {
+            int count = ++passages[id];
+            if (count == 1) {
+                deadEnds++;
+            } else if (count == 2) {
+                deadEnds--;
+                joined++;
+            } else {
+                excess++;
+            }
+        }
+
+        private void union(int id, int otherId) {
+            int root = find(id);
+            int otherRoot = find(otherId);
+            if (root == otherRoot)
+                return;
+            if (rank[root] < rank[otherRoot]) {
+                int swap = root;
+                root = otherRoot;
+                otherRoot = swap;
+            }
+            parent[otherRoot] = root;
+            if (rank[root] == rank[otherRoot])
+                rank[root]++;
+        }
+
+        private int find(int id) {
+            // path halving
+            while (parent[id] != id) {
+                parent[id] = parent[parent[id]];
+                id = parent[id];
+            }
+            return id;
+        }
+
+        /**
+         * Breadth first search of the tree holding the entrance, which has no
+         * cycle, so a cell is only checked against the cell it was reached
+         * from.
+         *
+         * @return Cells on the path from the entrance to the exit, both
+         *         included.
+         */
+        private int solutionLength(int entrance, int exit) {
+            if (queue == null) {
+                queue = new int[numCells];
+                from = new int[numCells];
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail] = entrance;
+            from[tail++] = -1;
+            for (int length = 1; head < tail; length++) {
+                for (int levelEnd = tail; head < levelEnd; head++) {
+                    int id = queue[head];
+                    if (id == exit)
+                        return length;
+                    Cell cell = maze.cellAt(id);
+                    for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+                        Cell neigh = maze.neighbour(cell, dir);
+                        if (neigh != null && !cell.wall[dir].present && maze.cellId(neigh) != from[head]) {
+                            queue[tail] = maze.cellId(neigh);
+                            from[tail++] = id;
+                        }
+                    }
+                    if (cell.tunnelTo != null && maze.cellId(cell.tunnelTo) != from[head]) {
+                        queue[tail] = maze.cellId(cell.tunnelTo);
+                        from[tail++] = id;
+                    }
+                }
+            }
+            // the exit is joined to the entrance
+            return -1;
+        }
+    } // end of class Tracker
+
+} // end of class CriteriaGenerator
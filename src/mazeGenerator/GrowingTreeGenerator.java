@@ -2,9 +2,11 @@ package mazeGenerator;
 
 import maze.Cell;
 import maze.Maze;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
 
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * Growing tree maze generator. As it is very general, here we implement as
@@ -23,102 +25,110 @@ import java.util.Random;
  * A. With a probability of threshold select a random cell from those already
  * visited.
  * B. With a probability of 1-threshold select the last cell marked.
+ * <p>
+ * The two ends of a tunnel are always connected, so the other end of a
+ * tunnel is marked together with the cell carved to, and becomes the last
+ * cell marked. Cells are marked in an array indexed by cell id and a cell is
+ * removed from Z by moving the last cell of Z into its place, so every step
+ * takes constant time.
  *
  * @author Lettisia George
  */
 
 public class GrowingTreeGenerator implements MazeGenerator {
-    //
+
+    /**
+     * Probability of selecting a random cell of Z instead of the last one
+     */
+    private static final double threshold = 0.1;
 
     @Override
-    public void generateMaze(Maze maze) {
-        Random random = new Random(System.currentTimeMillis());
+    public void generateMaze(Maze maze, long seed) {
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper(maze, seed).finish();
+        if (event != null)
+            event.finish(maze, this, seed);
+    }
 
-        // if tunnel, do nothing
-        if (maze.type == Maze.TUNNEL) {
-            return;
-        }
+    /**
+     * A step selects one cell of Z, and carves from it or removes it.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze, long seed) {
+        return new Stepper(maze, seed);
+    }
 
+    private static class Stepper implements MazeStepper {
+        private final Maze maze;
+        private final MazeRandom random;
+        private final boolean marked[];
+        // Z, most recently marked last
+        private final ArrayList<Cell> active;
+        private final int adjDir[] = new int[Maze.NUM_DIR];
 
-        // setup marked, frontier and unmarked
-        ArrayList<Cell> marked = new ArrayList<>();
-        ArrayList<Cell> unmarked = new ArrayList<>();
+        Stepper(Maze maze, long seed) {
+            this.maze = maze;
+            random = new MazeRandom(seed);
 
-        // If hex maze use larger column index if rectangular use number of columns
-        int maxCol = maze.type == Maze.HEX ? ((maze.sizeR + 1) / 2 + maze.sizeC) : maze.sizeC;
+            // setup marked and Z
+            marked = new boolean[maze.numCells()];
+            active = new ArrayList<>();
 
-        // add all cells to unmarked
-        for (int j = 0; j < maxCol; j++) {
-            for (int i = 0; i < maze.sizeR; i++) {
-                if (maze.map[i][j] != null) {
-                    unmarked.add(maze.map[i][j]);
-                }
-            }
+            // Pick a random starting cell and mark it
+            mark(maze.cellAt(random.nextInt(maze.numCells())));
         }
 
-        // Pick a random starting cell
-        Cell currentCell = unmarked.get(random.nextInt(unmarked.size()));
-
-        // move it from unmarked to marked
-        marked.add(currentCell);
-        unmarked.remove(currentCell);
-
-        Cell nextCell;
-        Cell lastCell = currentCell;
-
-        // while unmarked is not empty
-        while (unmarked.size() > 0) {
-            // Select the last cell most of the time but sometimes select a random cell
-            double threshold = 0.1;
-            if (random.nextDouble() < threshold) {
-                // Select random cell from marked
-                nextCell = marked.get(random.nextInt(marked.size()));
-            } else {
-                // use the last cell added
-                nextCell = lastCell;
-            }
-
-            //System.out.println("nextCell: " + nextCell);
+        @Override
+        public boolean step(int maxSteps) {
+            // while Z is not empty
+            for (int steps = 0; steps < maxSteps && active.size() > 0; steps++) {
+                // Select the last cell most of the time but sometimes select a random cell
+                int index = active.size() - 1;
+                if (random.nextDouble() < threshold)
+                    index = random.nextInt(active.size());
+                Cell nextCell = active.get(index);
+
+                // find the cells that are adjacent to nextCell and not marked
+                int count = 0;
+                for (int i = 0; i < Maze.NUM_DIR; i++) {
+                    Cell neigh = maze.neighbour(nextCell, i);
+                    if (neigh != null && !marked[maze.cellId(neigh)])
+                        adjDir[count++] = i;
+                }
 
-            // find the cells that are adjacent to nextCell and not in marked
-            ArrayList<Cell> adj = new ArrayList<>();
-            // loop through nextCell's neighbours
-            for (int i = 0; i < nextCell.neigh.length; i++) {
-                // does marked contain neigh?
-                if (nextCell.neigh[i] != null && unmarked.contains(nextCell.neigh[i])) {
-                    // found it! save it.
-                    adj.add(nextCell.neigh[i]);
+                // no adjacent unmarked cells? remove nextCell from Z
+                if (count == 0) {
+                    Cell last = active.remove(active.size() - 1);
+                    if (index < active.size())
+                        active.set(index, last);
+                    maze.counters.pop();
+                    continue;
                 }
-            }
 
-            // no adjacent unvisited cells? try again
-            if (adj.size() == 0) {
-                continue;
-            }
+                // pick a random adjacent cell and delete the shared wall
+                int dir = adjDir[random.nextInt(count)];
+                nextCell.wall[dir].present = false;
+                maze.counters.removeWall(nextCell, dir);
 
-            // pick a random adjacent cell
-            Cell neighCell = adj.get(random.nextInt(adj.size()));
-
-            // delete the shared wall
-            for (int i = 0; i < nextCell.wall.length; i++) {
-                for (int j = 0; j < neighCell.wall.length; j++) {
-                    // Is it null? Is it shared?
-                    if (nextCell.wall[i] != null && neighCell.wall[j] != null
-                            && nextCell.wall[i].equals(neighCell.wall[j])) {
-                        // DELETE!!!
-                        nextCell.wall[i].present = false;
-                        // DELETE!!!
-                        neighCell.wall[j].present = false;
-                    }
-                }
+                // mark it, and the other end of its tunnel
+                mark(maze.neighbour(nextCell, dir));
             }
+            return active.isEmpty();
+        }
 
-            // add nextCell to marked
-            marked.add(neighCell);
-            // remove it from unmarked
-            unmarked.remove(neighCell);
-            // save neighCell for later
-            lastCell = neighCell;
+        /**
+         * Mark a cell and the other end of its tunnel, and add them to Z.
+         */
+        private void mark(Cell cell) {
+            marked[maze.cellId(cell)] = true;
+            active.add(cell);
+            maze.counters.push(cell, active.size());
+
+            Cell other = cell.tunnelTo;
+            if (other != null && !marked[maze.cellId(other)])
+                mark(other);
         }
     }
 
@@ -0,0 +1,136 @@
+package mazeGenerator;
+
+import maze.Cell;
+import maze.Maze;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
+
+/**
+ * Hunt and kill maze generator. It needs no stack, so it uses no memory
+ * beyond the maze itself, however long the corridors are.
+ * <p>
+ * Algorithm:
+ * 1. Walk: from the current cell, carve a path to a random unvisited
+ * neighbour and move to it, until the current cell has no unvisited
+ * neighbour.
+ * 2. Hunt: scan the cells in id order for the first unvisited cell, carve a
+ * path from it to a random visited neighbour and walk from it.
+ * 3. Repeat until the hunt finds no unvisited cell.
+ * <p>
+ * The walk starts at cell 0 and every cell before the hunt cursor is
+ * visited, so the first unvisited cell always has a visited neighbour with a
+ * smaller id (west or below), and every hunt resumes where the last one
+ * stopped. Each cell is passed by the cursor once, so generation takes linear
+ * time. The two ends of a tunnel are always connected, so the walk goes
+ * through a tunnel as soon as it reaches an end whose other end is unvisited.
+ *
+ * @author Lettisia George
+ */
+public class HuntAndKillGenerator implements MazeGenerator {
+
+    @Override
+    public void generateMaze(Maze maze, long seed) {
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper(maze, seed).finish();
+        if (event != null)
+            event.finish(maze, this, seed);
+    } // end of generateMaze()
+
+    /**
+     * A step moves the walk by one cell, or the hunt cursor past one cell.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze, long seed) {
+        return new Stepper(maze, seed);
+    } // end of stepper()
+
+    private static class Stepper implements MazeStepper {
+        private final Maze maze;
+        private final MazeRandom random;
+        private final int dirs[] = new int[Maze.NUM_DIR];
+        private int cursor = 0;
+        private Cell current;
+        private boolean isHunting = false;
+
+        Stepper(Maze maze, long seed) {
+            this.maze = maze;
+            random = new MazeRandom(seed);
+
+            maze.resetVisited();
+            current = maze.cellAt(0);
+            visit(maze, current);
+        }
+
+        @Override
+        public boolean step(int maxSteps) {
+            for (int steps = 0; steps < maxSteps && !isDone(); steps++) {
+                // hunt for the first unvisited cell
+                if (isHunting) {
+                    Cell cell = maze.cellAt(cursor);
+                    if (cell.visited) {
+                        cursor++;
+                        continue;
+                    }
+                    current = cell;
+                    int count = neighbours(maze, current, true, dirs);
+                    int dir = dirs[random.nextInt(count)];
+                    current.wall[dir].present = false;
+                    maze.counters.removeWall(current, dir);
+                    visit(maze, current);
+                    isHunting = false;
+                    continue;
+                }
+
+                // walk through a tunnel to an unvisited end
+                if (current.tunnelTo != null && !current.tunnelTo.visited) {
+                    current = current.tunnelTo;
+                    visit(maze, current);
+                    continue;
+                }
+
+                // walk to a random unvisited neighbour
+                int count = neighbours(maze, current, false, dirs);
+                if (count > 0) {
+                    int dir = dirs[random.nextInt(count)];
+                    current.wall[dir].present = false;
+                    maze.counters.removeWall(current, dir);
+                    current = maze.neighbour(current, dir);
+                    visit(maze, current);
+                    continue;
+                }
+
+                maze.counters.pop();
+                isHunting = true;
+            }
+            return isDone();
+        }
+
+        private boolean isDone() {
+            return isHunting && cursor == maze.numCells();
+        }
+    } // end of class Stepper
+
+    private static void visit(Maze maze, Cell cell) {
+        cell.visited = true;
+        maze.counters.push(cell, 1);
+    } // end of visit()
+
+    /**
+     * Find the directions of the visited or unvisited neighbours of a cell.
+     *
+     * @return Number of directions found.
+     */
+    private static int neighbours(Maze maze, Cell cell, boolean visited, int dirs[]) {
+        int count = 0;
+        for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+            Cell neigh = maze.neighbour(cell, dir);
+            if (neigh != null && neigh.visited == visited)
+                dirs[count++] = dir;
+        }
+        return count;
+    } // end of neighbours()
+
+} // end of class HuntAndKillGenerator
@@ -0,0 +1,183 @@
+package mazeGenerator;
+
+import maze.Maze;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates many mazes of the same shape (maze type, size, entrance, exit
+ * and tunnels) with one generator. Every thread keeps one maze and one
+ * generator and resets the maze (see Maze.reset()) between mazes, so no
+ * cells or walls are allocated after the first maze of a thread. Batches
+ * generated on several threads run on a pool of daemon threads kept from
+ * one batch to the next, with their mazes, until close() or a batch asking
+ * for another number of threads.
+ * <p>
+ * The i-th maze of a batch is generated with seed
+ * new MazeRandom(batchSeed).split(i).nextLong(), as in MazeBatchTester, so
+ * a batch is the same however many threads generate it.
+ *
+ * @author Lettisia George
+ */
+public class MazeBulkGenerator implements AutoCloseable {
+    /**
+     * Receives every generated maze.
+     */
+    public interface MazeSink {
+        /**
+         * @param index Index of the maze in the batch.
+         * @param seed  Seed the maze was generated with.
+         * @param maze  The maze, reused for the next maze of the thread once
+         *              this returns, so it must not be kept.
+         */
+        void accept(int index, long seed, Maze maze);
+    }
+
+    private final String mazeType;
+    private final String generatorName;
+    private final int sizeR;
+    private final int sizeC;
+    private final int entR;
+    private final int entC;
+    private final int exitR;
+    private final int exitC;
+    private final List<int[]> tunnelList;
+
+    /**
+     * Maze and generator of every thread, built on first use
+     */
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    /**
+     * Threads of the batches generated on several threads, null until the
+     * first one
+     */
+    private ExecutorService pool = null;
+    private int poolThreads = 0;
+
+    /**
+     * @throws IllegalArgumentException if the maze type or generator is
+     *                                  unknown.
+     */
+    public MazeBulkGenerator(String mazeType, String generatorName, int sizeR, int sizeC, int entR, int entC,
+                             int exitR, int exitC, List<int[]> tunnelList) {
+        this.mazeType = mazeType;
+        this.generatorName = generatorName;
+        this.sizeR = sizeR;
+        this.sizeC = sizeC;
+        this.entR = entR;
+        this.entC = entC;
+        this.exitR = exitR;
+        this.exitC = exitC;
+        this.tunnelList = new ArrayList<>(tunnelList);
+        // check the names before any maze is generated
+        Maze.forType(mazeType);
+        MazeGenerator.forName(generatorName);
+    }
+
+    /**
+     * Generate mazes first to last - 1 of a batch on the calling thread.
+     *
+     * @param batchSeed Seed of the batch.
+     * @param first     Index of the first maze.
+     * @param last      Index after the last maze.
+     * @param sink      Receives every maze.
+     */
+    public void generateRange(long batchSeed, int first, int last, MazeSink sink) {
+        Buffer buffer = buffers.get();
+        MazeRandom seeds = new MazeRandom(batchSeed);
+        for (int i = first; i < last; i++) {
+            long seed = seeds.split(i).nextLong();
+            buffer.maze.reset();
+            buffer.mazeGen.generateMaze(buffer.maze, seed);
+            sink.accept(i, seed, buffer.maze);
+        }
+    }
+
+    /**
+     * Generate a batch of mazes on a number of threads, each generating a
+     * contiguous range of the batch.
+     *
+     * @param batchSeed  Seed of the batch.
+     * @param count      Number of mazes.
+     * @param numThreads Number of threads.
+     * @param sink       Receives every maze, from several threads at once.
+     */
+    public void generate(long batchSeed, int count, int numThreads, MazeSink sink) {
+        if (numThreads <= 1) {
+            generateRange(batchSeed, 0, count, sink);
+            return;
+        }
+
+        ExecutorService pool = pool(numThreads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            final int first = (int) ((long) count * t / numThreads);
+            final int last = (int) ((long) count * (t + 1) / numThreads);
+            results.add(pool.submit(() -> generateRange(batchSeed, first, last, sink)));
+        }
+        try {
+            for (Future<?> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            for (Future<?> result : results)
+                result.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            for (Future<?> result : results)
+                result.cancel(true);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Stop the threads of the pool, and let their mazes be collected. A
+     * later batch on several threads starts a new pool.
+     */
+    @Override
+    public synchronized void close() {
+        if (pool != null)
+            pool.shutdown();
+        pool = null;
+        poolThreads = 0;
+    }
+
+    /**
+     * @return The pool of numThreads threads, started on first use.
+     */
+    private synchronized ExecutorService pool(int numThreads) {
+        if (pool != null && poolThreads == numThreads)
+            return pool;
+        close();
+        pool = Executors.newFixedThreadPool(numThreads, task -> {
+            // an unclosed generator does not keep the JVM alive
+            Thread thread = new Thread(task, "MazeBulkGenerator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poolThreads = numThreads;
+        return pool;
+    }
+
+    /**
+     * A quiet, all-wall maze of the shape and a generator, for one thread.
+     */
+    private class Buffer {
+        final Maze maze = Maze.forType(mazeType);
+        final MazeGenerator mazeGen = MazeGenerator.forName(generatorName);
+
+        Buffer() {
+            maze.isVisu = false;
+            maze.isVerbose = false;
+            maze.initMaze(sizeR, sizeC, entR, entC, exitR, exitC, tunnelList);
+        }
+    }
+
+} // end of class MazeBulkGenerator
@@ -0,0 +1,235 @@
+package mazeGenerator;
+
+import maze.Maze;
+import maze.MazeFile;
+import maze.MazeParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-tier cache of generated mazes. A maze is identified by everything that
+ * determines it: maze type, generator, size, entrance, exit, tunnels and seed
+ * (see MazeGenerator.generateMaze(Maze, long)). The first tier keeps the
+ * MazeFile encodings of the most recently used mazes in memory, up to a
+ * number of bytes; the second tier, if a directory is given, keeps every
+ * maze generated as a file named after the SHA-256 hash of its key.
+ * <p>
+ * Repeated requests are served from the encoding instead of running the
+ * generator again. GENERATION must be increased whenever a generator changes
+ * the maze it produces for a seed, so stale files on disk are not used.
+ * <p>
+ * The cache can be shared between threads.
+ *
+ * @author Lettisia George
+ */
+public class MazeCache {
+    /**
+     * Version of the generators, part of every key
+     */
+    public static final int GENERATION = 2;
+
+    private final long maxBytes;
+    private final File directory;
+
+    // least recently used first
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maxBytes  Maximum total size of the encodings kept in memory.
+     * @param directory Directory of the on-disk store, created if missing,
+     *                  or null to keep mazes in memory only.
+     */
+    public MazeCache(long maxBytes, File directory) {
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        if (directory != null)
+            directory.mkdirs();
+    }
+
+    /**
+     * Get the maze a parameter file describes, generating it on a miss.
+     *
+     * @param params Maze parameters.
+     * @param seed   Seed of the generator.
+     * @return A new Maze object with the walls of the generated maze.
+     */
+    public Maze get(MazeParameters params, long seed) {
+        return get(params.mazeType, params.mazeGeneratorName, params.rowNum, params.colNum, params.entR,
+                params.entC, params.exitR, params.exitC, params.tunnelList, seed);
+    }
+
+    /**
+     * Get a generated maze, generating it on a miss.
+     *
+     * @return A new Maze object with the walls of the generated maze, it can
+     * be modified freely.
+     * @throws IllegalArgumentException if the maze type or generator is
+     *                                  unknown.
+     */
+    public Maze get(String mazeType, String generatorName, int sizeR, int sizeC, int entR, int entC, int exitR,
+                    int exitC, List<int[]> tunnelList, long seed) {
+        byte encoded[] = getEncoded(mazeType, generatorName, sizeR, sizeC, entR, entC, exitR, exitC, tunnelList,
+                seed);
+        try {
+            return MazeFile.decode(encoded).load();
+        } catch (IOException e) {
+            // only well formed encodings are cached
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the MazeFile encoding of a generated maze, generating it on a miss.
+     *
+     * @return The encoding, shared with the cache so it must not be modified.
+     * @throws IllegalArgumentException if the maze type or generator is
+     *                                  unknown.
+     */
+    public byte[] getEncoded(String mazeType, String generatorName, int sizeR, int sizeC, int entR, int entC,
+                             int exitR, int exitC, List<int[]> tunnelList, long seed) {
+        String key = key(mazeType, generatorName, sizeR, sizeC, entR, entC, exitR, exitC, tunnelList, seed);
+
+        synchronized (this) {
+            byte encoded[] = memory.get(key);
+            if (encoded != null) {
+                memoryHits++;
+                return encoded;
+            }
+        }
+
+        byte encoded[] = readDisk(key);
+        if (encoded != null) {
+            synchronized (this) {
+                diskHits++;
+            }
+        } else {
+            Maze maze = Maze.forType(mazeType);
+            MazeGenerator mazeGen = MazeGenerator.forName(generatorName);
+            maze.initMaze(sizeR, sizeC, entR, entC, exitR, exitC, tunnelList);
+            mazeGen.generateMaze(maze, seed);
+            encoded = MazeFile.encode(maze);
+            writeDisk(key, encoded);
+            synchronized (this) {
+                misses++;
+            }
+        }
+
+        put(key, encoded);
+        return encoded;
+    }
+
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Hex SHA-256 of all parameters that determine a generated maze.
+     */
+    public static String key(String mazeType, String generatorName, int sizeR, int sizeC, int entR, int entC,
+                             int exitR, int exitC, List<int[]> tunnelList, long seed) {
+        StringBuilder text = new StringBuilder();
+        text.append(GENERATION).append('/').append(MazeFile.VERSION).append('|').append(mazeType).append('|')
+                .append(generatorName).append('|').append(sizeR).append(' ').append(sizeC).append('|')
+                .append(entR).append(' ').append(entC).append('|').append(exitR).append(' ').append(exitC)
+                .append('|').append(seed);
+        for (int tunnel[] : tunnelList)
+            text.append('|').append(tunnel[0]).append(' ').append(tunnel[1]).append(' ').append(tunnel[2])
+                    .append(' ').append(tunnel[3]);
+
+        try {
+            byte hash[] = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash)
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Add an encoding to the memory tier and evict the least recently used
+     * ones beyond maxBytes.
+     */
+    private synchronized void put(String key, byte encoded[]) {
+        byte old[] = memory.put(key, encoded);
+        if (old != null)
+            bytes -= old.length;
+        bytes += encoded.length;
+
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return The stored encoding, null if there is none or it is damaged.
+     */
+    private byte[] readDisk(String key) {
+        if (directory == null)
+            return null;
+        File file = new File(directory, key + ".maze");
+        if (!file.isFile())
+            return null;
+        try {
+            byte encoded[] = Files.readAllBytes(file.toPath());
+            MazeFile.decode(encoded);
+            return encoded;
+        } catch (IOException e) {
+            // regenerated and overwritten by the caller
+            return null;
+        }
+    }
+
+    /**
+     * Store an encoding, written to a temporary file first so readers never
+     * see a partial file. Failures only cost a regeneration later.
+     */
+    private void writeDisk(String key, byte encoded[]) {
+        if (directory == null)
+            return;
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            Files.write(tmp, encoded);
+            Files.move(tmp, new File(directory, key + ".maze").toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[MazeCache] Can not store maze " + key + ": " + e.getMessage());
+            try {
+                if (tmp != null)
+                    Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // nothing else to do
+            }
+        }
+    }
+
+} // end of class MazeCache
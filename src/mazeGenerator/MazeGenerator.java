@@ -1,6 +1,7 @@
 package mazeGenerator;
 
 import maze.Maze;
+import maze.MazeStepper;
 
 /**
  * Interface of a maze generator.
@@ -11,9 +12,72 @@ import maze.Maze;
  */
 public interface MazeGenerator
 {
+	/**
+	 * Function that generate a perfect maze from an all-wall initialized maze,
+	 * seeded from the clock.
+	 * @param maze The reference of Maze object to generate. 
+	 */
+	default void generateMaze(Maze maze) {
+		generateMaze(maze, System.currentTimeMillis());
+	} // end of generateMaze()
+
 	/**
 	 * Function that generate a perfect maze from an all-wall initialized maze.
+	 * The same generator, seed and maze always give the same perfect maze.
 	 * @param maze The reference of Maze object to generate. 
+	 * @param seed Seed of the MazeRandom stream driving the generator.
+	 */
+	void generateMaze(Maze maze, long seed);
+
+	/**
+	 * Prepare to generate a perfect maze a bounded number of steps at a time,
+	 * see MazeStepper. The stepper holds all the state of the run, so one
+	 * generator can step many mazes at once, and gives the same maze as
+	 * generateMaze(maze, seed). Generators that can not be stepped generate
+	 * the whole maze in the first step.
+	 * @param maze The reference of Maze object to generate.
+	 * @param seed Seed of the MazeRandom stream driving the generator.
+	 * @return A stepper that has not run any step yet.
+	 */
+	default MazeStepper stepper(Maze maze, long seed) {
+		return new MazeStepper() {
+			private boolean isDone = false;
+
+			@Override
+			public boolean step(int maxSteps) {
+				if (!isDone)
+					generateMaze(maze, seed);
+				isDone = true;
+				return true;
+			}
+		};
+	} // end of stepper()
+
+	/**
+	 * Construct the generator named in parameter files.
+	 * @param name "modiPrim", "recurBack", "growingTree", "huntAndKill", or
+	 *             "recurDiv", "binaryTree" or "sidewinder" (normal mazes only).
+	 * @return A new generator.
+	 * @throws IllegalArgumentException if the name is unknown.
 	 */
-	void generateMaze(Maze maze);
+	static MazeGenerator forName(String name) {
+		switch (name) {
+		case "modiPrim":
+			return new ModifiedPrimsGenerator();
+		case "recurBack":
+			return new RecursiveBacktrackerGenerator();
+		case "growingTree":
+			return new GrowingTreeGenerator();
+		case "huntAndKill":
+			return new HuntAndKillGenerator();
+		case "recurDiv":
+			return new RecursiveDivisionGenerator();
+		case "binaryTree":
+			return new BinaryTreeGenerator();
+		case "sidewinder":
+			return new SidewinderGenerator();
+		default:
+			throw new IllegalArgumentException("Unknown maze generator name.");
+		}
+	} // end of forName()
 } // end of interface mazeGenerator
\ No newline at end of file
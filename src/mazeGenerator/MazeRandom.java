@@ -0,0 +1,107 @@
+package mazeGenerator;
+
+/**
+ * Counter-based random number generator used by the maze generators
+ * (SplitMix64: the i-th value of a stream is a hash of seed + i * GAMMA).
+ * <p>
+ * A stream is fully described by its seed and its counter, so it can be
+ * saved and restored, and split(index) derives independent streams for tiles
+ * or threads that do not depend on how much of this stream has been used.
+ * The same seed therefore always produces the same maze, however the work is
+ * scheduled.
+ *
+ * @author Lettisia George
+ */
+public class MazeRandom {
+    /**
+     * Odd constant added to the state for every value, 2^64 / golden ratio
+     */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private long counter;
+
+    /**
+     * Construct a stream starting at the first value of seed.
+     *
+     * @param seed Seed of the stream.
+     */
+    public MazeRandom(long seed) {
+        this(seed, 0);
+    }
+
+    /**
+     * Construct a stream positioned after counter values of seed.
+     *
+     * @param seed    Seed of the stream.
+     * @param counter Number of values already drawn from the stream.
+     */
+    public MazeRandom(long seed, long counter) {
+        this.seed = seed;
+        this.counter = counter;
+    }
+
+    /**
+     * Derive an independent stream, e.g. one per tile or thread. The result
+     * only depends on the seed of this stream and index.
+     *
+     * @param index Index of the stream to derive.
+     * @return A new stream.
+     */
+    public MazeRandom split(long index) {
+        return new MazeRandom(mix64(seed ^ mix64(index * GAMMA + GAMMA)));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Number of values drawn from the stream so far.
+     */
+    public long getCounter() {
+        return counter;
+    }
+
+    public long nextLong() {
+        return mix64(seed + ++counter * GAMMA);
+    }
+
+    /**
+     * @param bound Upper bound (exclusive), must be positive.
+     * @return A uniformly distributed int in [0, bound).
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        // reject the top of the range so every value is equally likely
+        int r = (int) (nextLong() >>> 33);
+        int m = bound - 1;
+        if ((bound & m) == 0)
+            return r & m;
+        for (int u = r; u - (r = u % bound) + m < 0; u = (int) (nextLong() >>> 33))
+            ;
+        return r;
+    }
+
+    /**
+     * @return A uniformly distributed double in [0, 1).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Stafford's variant 13 of the MurmurHash3 finaliser.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+} // end of class MazeRandom
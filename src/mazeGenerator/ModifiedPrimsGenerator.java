@@ -2,9 +2,11 @@ package mazeGenerator;
 
 import maze.Cell;
 import maze.Maze;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
 
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * Generates a maze using a modified version of Prim's Algorithm.
@@ -24,92 +26,118 @@ import java.util.Random;
 
 public class ModifiedPrimsGenerator implements MazeGenerator {
 
+    // state of a cell, by cell id
+    private static final byte REST = 0;
+    private static final byte FRONTIER = 1;
+    private static final byte DONE = 2;
+
+    /**
+     * The two ends of a tunnel are always connected, so a cell and the other
+     * end of its tunnel join Z together and the tunnel is never carved
+     * around. Sets are arrays indexed by cell id and a cell is taken from the
+     * frontier by moving the last frontier cell into its place, so every step
+     * takes constant time.
+     */
     @Override
-    public void generateMaze(Maze maze) {
-        Random random = new Random(System.currentTimeMillis());
+    public void generateMaze(Maze maze, long seed) {
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper(maze, seed).finish();
+        if (event != null)
+            event.finish(maze, this, seed);
+    } // end of generateMaze()
 
-        // if tunnel, do nothing
-        if (maze.type == Maze.TUNNEL) {
-            return;
+    /**
+     * A step takes one cell from the frontier.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze, long seed) {
+        return new Stepper(maze, seed);
+    } // end of stepper()
+
+    private static class Stepper implements MazeStepper {
+        private final Maze maze;
+        private final MazeRandom random;
+        private final byte state[];
+        // frontier in no particular order, and the index of every frontier cell in it
+        private final ArrayList<Cell> frontier;
+        private final int frontierIndex[];
+        private final int adjDir[] = new int[Maze.NUM_DIR];
+
+        Stepper(Maze maze, long seed) {
+            this.maze = maze;
+            random = new MazeRandom(seed);
+
+            // setup done, frontier and theRest
+            state = new byte[maze.numCells()];
+            frontier = new ArrayList<>();
+            frontierIndex = new int[maze.numCells()];
+
+            // Pick a random starting cell and move it to done
+            addToDone(maze.cellAt(random.nextInt(maze.numCells())));
         }
 
-        // setup done, frontier and theRest
-        ArrayList<Cell> done = new ArrayList<>();
-        ArrayList<Cell> frontier = new ArrayList<>();
-        ArrayList<Cell> theRest = new ArrayList<>();
-
-        // If hex maze use larger column index if rectangular use number of columns
-        int maxCol = maze.type == Maze.HEX ? ((maze.sizeR + 1) / 2 + maze.sizeC) : maze.sizeC;
-
-        // add all cells to theRest
-        for (int j = 0; j < maxCol; j++) {
-            for (int i = 0; i < maze.sizeR; i++) {
-                if (maze.map[i][j] != null) {
-                    theRest.add(maze.map[i][j]);
+        @Override
+        public boolean step(int maxSteps) {
+            // while frontier is not empty
+            for (int steps = 0; steps < maxSteps && frontier.size() > 0; steps++) {
+                // randomly select a cell from frontier
+                Cell newCell = frontier.get(random.nextInt(frontier.size()));
+                removeFromFrontier(newCell);
+
+                // find the cells in done that are adjacent to newCell
+                int count = 0;
+                for (int i = 0; i < Maze.NUM_DIR; i++) {
+                    Cell neigh = maze.neighbour(newCell, i);
+                    if (neigh != null && state[maze.cellId(neigh)] == DONE)
+                        adjDir[count++] = i;
                 }
-            }
-        }
+                // pick a random adjacent cell and delete the shared wall
+                int pick = random.nextInt(count);
+                newCell.wall[adjDir[pick]].present = false;
+                maze.counters.removeWall(newCell, adjDir[pick]);
 
-        // Pick a random starting cell
-        Cell currentCell = theRest.get(random.nextInt(theRest.size()));
-
-        // move it from theRest to done
-        done.add(currentCell);
-        theRest.remove(currentCell);
-        // Move all non-null neighbouring cells from theRest into frontier
-        for (int i = 0; i < currentCell.neigh.length; i++) {
-            if (currentCell.neigh[i] != null) {
-                frontier.add(currentCell.neigh[i]);
-                theRest.remove(currentCell.neigh[i]);
+                // add newCell, and the other end of its tunnel, to done
+                addToDone(newCell);
             }
+            return frontier.isEmpty();
         }
 
-        // while done is not empty
-        while (theRest.size() > 0 || frontier.size() > 0) {
-            // randomly select a non-null cell from frontier
-            Cell newCell = frontier.get(random.nextInt(frontier.size()));
-            //System.out.println("newCell: " + newCell);
-
-            // find the cells in done that are adjacent to newCell
-            ArrayList<Cell> adj = new ArrayList<>();
-            // loop through newCell's neighbours
-            for (int i = 0; i < newCell.neigh.length; i++) {
-                // does done contain neigh?
-                if (newCell.neigh[i] != null && done.contains(newCell.neigh[i])) {
-                    // found it! save it.
-                    adj.add(newCell.neigh[i]);
-                }
-            }
-            // pick a random adjacent cell
-            Cell doneCell = adj.get(random.nextInt(adj.size()));
-
-            // delete the shared wall
-            for (int i = 0; i < newCell.wall.length; i++) {
-                for (int j = 0; j < doneCell.wall.length; j++) {
-                    // Is it null? Is it shared?
-                    if (newCell.wall[i] != null && doneCell.wall[j] != null && newCell.wall[i].equals(doneCell.wall[j])) {
-                        // DELETE!!!
-                        newCell.wall[i].present = false;
-                        // DELETE!!!
-                        doneCell.wall[j].present = false;
-                    }
+        /**
+         * Move a cell and the other end of its tunnel to done, and their
+         * neighbours in theRest to frontier.
+         */
+        private void addToDone(Cell cell) {
+            state[maze.cellId(cell)] = DONE;
+            for (int i = 0; i < Maze.NUM_DIR; i++) {
+                Cell neigh = maze.neighbour(cell, i);
+                if (neigh != null && state[maze.cellId(neigh)] == REST) {
+                    int id = maze.cellId(neigh);
+                    state[id] = FRONTIER;
+                    frontierIndex[id] = frontier.size();
+                    frontier.add(neigh);
+                    maze.counters.push(neigh, frontier.size());
                 }
             }
 
-            // add neighbours of newCell to frontier
-            for (int i = 0; i < newCell.neigh.length; i++) {
-                // Is it null? Is it outside the frontier and done?
-                if (newCell.neigh[i] != null && theRest.contains(newCell.neigh[i])) {
-                    // move it from theRest to frontier
-                    frontier.add(newCell.neigh[i]);
-                    theRest.remove(newCell.neigh[i]);
-                }
+            Cell other = cell.tunnelTo;
+            if (other != null && state[maze.cellId(other)] != DONE) {
+                if (state[maze.cellId(other)] == FRONTIER)
+                    removeFromFrontier(other);
+                addToDone(other);
             }
-            // add newCell to done
-            done.add(newCell);
-            // remove it from frontier
-            frontier.remove(newCell);
-        }
-    } // end of generateMaze()
+        } // end of addToDone()
+
+        private void removeFromFrontier(Cell cell) {
+            int index = frontierIndex[maze.cellId(cell)];
+            Cell last = frontier.remove(frontier.size() - 1);
+            if (last != cell) {
+                frontier.set(index, last);
+                frontierIndex[maze.cellId(last)] = index;
+            }
+            maze.counters.pop();
+        } // end of removeFromFrontier()
+    } // end of class Stepper
 
 } // end of class ModifiedPrimsGenerator
@@ -2,9 +2,16 @@ package mazeGenerator;
 
 import maze.Cell;
 import maze.Maze;
+import maze.MazeCounters;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
+import maze.OffHeapMaze;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Random;
 import java.util.Stack;
 
 /**
@@ -14,7 +21,11 @@ import java.util.Stack;
  * @author LosoLai_21/09/2017
  */
 public class RecursiveBacktrackerGenerator implements MazeGenerator {
-    private Random random;
+
+    /**
+     * Steps of the off-heap generator between looks at the clock, a power of 2
+     */
+    private static final long CLOCK_STEPS = 1 << 16;
 
     /**
      * Depth first search traversal of input maze from the entrance cell
@@ -27,11 +38,11 @@ public class RecursiveBacktrackerGenerator implements MazeGenerator {
      * OUTPUT : Maze maze with its cell marked with consecutive integers in the order they were visited/processed.
      * <p>
      * 1: traversalOrder = {entrance}
-     * // add all unvisited cells into the unVisitedCells ArrayList
+     * // count the unvisited cells
      * 2: for i = 0 to row do
      * 3:    for j = 0 to col do
      * 4:    	if(!maze.map[i][j].visited)
-     * 5:				unvisited.add(maze.map[i][j]);
+     * 5:				unVisitedCells++;
      * 6: end for
      * // initiate DFS from entrance cell
      * 7: while loop terminate condition: when unVisitedCells is none
@@ -40,100 +51,248 @@ public class RecursiveBacktrackerGenerator implements MazeGenerator {
      * ******************************************************************************************
      *
      * @param maze Input Maze.
+     * @param seed Seed of the random cell picks.
      */
     @Override
-    public void generateMaze(Maze maze) {
-        random = new Random(System.currentTimeMillis());
-
-        Stack<Cell> traversalOrder = new Stack<>();
-        ArrayList<Cell> unVisitedCells = checkAllVisited(maze);
+    public void generateMaze(Maze maze, long seed) {
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper(maze, seed).finish();
+        if (event != null)
+            event.finish(maze, this, seed);
 
-        //pick entrance as the starting order
-        traversalOrder.push(maze.entrance);
+    } // end of generateMaze()
 
-        while (unVisitedCells.size() > 0)
-            backtracker(unVisitedCells, traversalOrder);
 
-    } // end of generateMaze()
+    /**
+     * A step is one call of backtracker(): a move to the next cell or back to
+     * the previous one.
+     *
+     * @param maze Input Maze.
+     * @param seed Seed of the random cell picks.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze, long seed) {
+        return new Stepper(maze, seed);
+    } // end of stepper()
 
 
     /**
-     * backtracker method, that implements DFS visitation semantics.
-     * <p>
-     * ******************************************************************************************
-     * <p>
-     * INPUT: A seed/starting cell, array of cell unvisited, traversal order of cell visited so far
-     * OUTPUT : None
-     * <p>
-     * 1: current.visited = true
-     * 2: remove current cell from unVisitedCells
-     * 3: if traversalOrder is not empty
-     * 4: 	pick next random cell
-     * 5: 	remove the connected walls
-     * 6:  	push the next cell into stack for visiting next
-     * 7: else
-     * 8:   pop the stack for checking the previous cell
-     * <p>
-     * ******************************************************************************************
+     * Recursive backtracker on a maze stored off the heap, for mazes too large
+     * to build as Cell objects. Instead of a stack of cells, the mark of every
+     * visited cell holds the way back to the cell it was reached from, so no
+     * memory is used beyond the maze itself. Cells, tunnels and neighbours are
+     * picked in the same order as generateMaze(Maze, long), so the same seed
+     * gives the same maze.
      *
-     * @param unVisitedCells LinkedList of cells
-     * @param traversalOrder Stack of cells, stored in the order they were visited so far in the
-     *                       DFS traversal.
+     * @param maze All-wall maze, its marks are overwritten.
+     * @param seed Seed of the random cell picks.
      */
-    private void backtracker(ArrayList<Cell> unVisitedCells, Stack<Cell> traversalOrder) {
-        if (traversalOrder.isEmpty())
-            return;
+    public void generateMaze(OffHeapMaze maze, long seed) {
+        MazeRandom random = new MazeRandom(seed);
+        maze.clearMarks();
+
+        int unvisited[] = new int[Maze.NUM_DIR];
+        long current = maze.entranceId();
+        maze.setMark(current, OffHeapMaze.ROOT);
+        while (current >= 0)
+            current = step(maze, random, current, unvisited);
+    } // end of generateMaze()
 
-        Cell current = traversalOrder.peek();
 
-        //mark as visited
-        current.visited = true;
-        System.out.println("Visited :" + current);
+    /**
+     * Recursive backtracker on a maze stored off the heap, saving a checkpoint
+     * every interval milliseconds so a job killed during a multi-hour build
+     * can be restarted. If the checkpoint file exists, generation resumes from
+     * it instead of starting over. The walls, the marks (which are the stack)
+     * and the seed, counter and current cell are all the state there is, so a
+     * resumed run gives the same maze as an uninterrupted one. The checkpoint
+     * is deleted once the maze is done and forced to its file.
+     *
+     * @param maze       All-wall maze created from the same parameters as the
+     *                   one the checkpoint was saved from.
+     * @param seed       Seed of the random cell picks, the same as before the
+     *                   job was killed.
+     * @param checkpoint File the checkpoints are written to.
+     * @param interval   Milliseconds between checkpoints.
+     * @throws IOException if the checkpoint can not be read or written, or
+     *                     was saved with another seed.
+     */
+    public void generateMaze(OffHeapMaze maze, long seed, File checkpoint, long interval) throws IOException {
+        OffHeapMaze.checkCheckpoint(checkpoint);
+        int unvisited[] = new int[Maze.NUM_DIR];
+        MazeRandom random;
+        long current;
+        if (checkpoint.exists()) {
+            long state[] = maze.readCheckpoint(checkpoint);
+            if (state.length != 3 || state[0] != seed)
+                throw new IOException(checkpoint + " was not saved by a recursive backtracker with seed " + seed + ".");
+            random = new MazeRandom(seed, state[1]);
+            current = state[2];
+        } else {
+            random = new MazeRandom(seed);
+            maze.clearMarks();
+            current = maze.entranceId();
+            maze.setMark(current, OffHeapMaze.ROOT);
+        }
 
-        //remove from unVisitedCells
-        if (unVisitedCells.isEmpty())
-            return;
+        long due = System.currentTimeMillis() + interval;
+        for (long steps = 1; current >= 0; steps++) {
+            current = step(maze, random, current, unvisited);
+            // only look at the clock now and then
+            if ((steps & CLOCK_STEPS - 1) == 0 && current >= 0 && System.currentTimeMillis() >= due) {
+                maze.writeCheckpoint(checkpoint, new long[] { seed, random.getCounter(), current });
+                due = System.currentTimeMillis() + interval;
+            }
+        }
+        maze.force();
+        Files.deleteIfExists(checkpoint.toPath());
+    } // end of generateMaze()
 
-        unVisitedCells.remove(current);
 
+    /**
+     * One step of the off-heap recursive backtracker: go through a tunnel, to
+     * a random unvisited neighbour or back.
+     *
+     * @param random    Random cell picks of the run.
+     * @param unvisited Scratch array of NUM_DIR directions.
+     * @return The next cell, -1 when the traversal is back at the root.
+     */
+    private long step(OffHeapMaze maze, MazeRandom random, long current, int unvisited[]) {
         //check the tunnel cell
         //if haven't visited then pick as next cell
-        if (current.tunnelTo != null && !current.tunnelTo.visited) {
-            //push into the stack
-            traversalOrder.push(current.tunnelTo);
-            return;
+        long next = maze.tunnel(current);
+        if (next >= 0 && maze.getMark(next) == OffHeapMaze.UNVISITED) {
+            maze.setMark(next, OffHeapMaze.VIA_TUNNEL);
+            return next;
+        }
+
+        int count = 0;
+        for (int dir = 0; dir < Maze.NUM_DIR; dir++) {
+            next = maze.neighbour(current, dir);
+            if (next >= 0 && maze.getMark(next) == OffHeapMaze.UNVISITED)
+                unvisited[count++] = dir;
+        }
+
+        if (count > 0) {
+            //remove the wall to a random unvisited neighbour
+            int dir = unvisited[random.nextInt(count)];
+            maze.setWallPresent(current, dir, false);
+            next = maze.neighbour(current, dir);
+            maze.setBack(next, Maze.oppoDir[dir]);
+            return next;
+        }
+        //trace back
+        return maze.back(current);
+    } // end of step()
+
+
+    private class Stepper implements MazeStepper {
+        private final MazeRandom random;
+        private final MazeCounters counters;
+        private final Stack<Cell> traversalOrder = new Stack<>();
+        private long unVisitedCells;
+
+        Stepper(Maze maze, long seed) {
+            random = new MazeRandom(seed);
+            counters = maze.counters;
+            unVisitedCells = checkAllVisited(maze);
+
+            //pick entrance as the starting order
+            traversalOrder.push(maze.entrance);
+            counters.push(maze.entrance, traversalOrder.size());
         }
 
-        Cell randomCell;
-        ArrayList<Cell> unvisited = checkAllVisited(current.neigh);
-        if (unvisited.size() > 0) {
-            //pick a random starting cell
-            randomCell = unvisited.get(random.nextInt(unvisited.size()));
-
-            //remove the wall
-            for (int i = 0; i < current.wall.length; i++) {
-                for (int j = 0; j < randomCell.wall.length; j++) {
-                    if (current.wall[i] != null &&
-                            randomCell.wall[j] != null &&
-                            current.wall[i].equals(randomCell.wall[j])) {
-                        //remove walls
-                        current.wall[i].present = false;
-                        randomCell.wall[j].present = false;
+        @Override
+        public boolean step(int maxSteps) {
+            for (int steps = 0; steps < maxSteps && unVisitedCells > 0 && !traversalOrder.isEmpty(); steps++)
+                backtracker();
+            return unVisitedCells == 0 || traversalOrder.isEmpty();
+        }
+
+        /**
+         * backtracker method, that implements DFS visitation semantics.
+         * <p>
+         * ******************************************************************************************
+         * <p>
+         * INPUT: A seed/starting cell, array of cell unvisited, traversal order of cell visited so far
+         * OUTPUT : None
+         * <p>
+         * 1: current.visited = true
+         * 2: remove current cell from unVisitedCells
+         * 3: if traversalOrder is not empty
+         * 4: 	pick next random cell
+         * 5: 	remove the connected walls
+         * 6:  	push the next cell into stack for visiting next
+         * 7: else
+         * 8:   pop the stack for checking the previous cell
+         * <p>
+         * ******************************************************************************************
+         *
+         * The number of unvisited cells is counted rather than kept in a list,
+         * so every step takes constant time.
+         */
+        private void backtracker() {
+            if (traversalOrder.isEmpty())
+                return;
+
+            Cell current = traversalOrder.peek();
+
+            //mark as visited
+            boolean wasVisited = current.visited;
+            current.visited = true;
+
+            //remove from unVisitedCells
+            if (unVisitedCells == 0)
+                return;
+
+            if (!wasVisited)
+                unVisitedCells--;
+
+            //check the tunnel cell
+            //if haven't visited then pick as next cell
+            if (current.tunnelTo != null && !current.tunnelTo.visited) {
+                //push into the stack
+                traversalOrder.push(current.tunnelTo);
+                counters.push(current.tunnelTo, traversalOrder.size());
+                return;
+            }
+
+            Cell randomCell;
+            ArrayList<Cell> unvisited = checkAllVisited(current.neigh);
+            if (unvisited.size() > 0) {
+                //pick a random starting cell
+                randomCell = unvisited.get(random.nextInt(unvisited.size()));
+
+                //remove the wall
+                for (int i = 0; i < current.wall.length; i++) {
+                    for (int j = 0; j < randomCell.wall.length; j++) {
+                        if (current.wall[i] != null &&
+                                randomCell.wall[j] != null &&
+                                current.wall[i].equals(randomCell.wall[j])) {
+                            //remove walls
+                            current.wall[i].present = false;
+                            randomCell.wall[j].present = false;
+                            counters.removeWall(current, i);
+                        }
                     }
                 }
-            }
-        } else {
-            //trace back
-            if (traversalOrder.isEmpty())
+            } else {
+                //trace back
+                if (traversalOrder.isEmpty())
+                    return;
+
+                traversalOrder.pop();
+                counters.pop();
                 return;
+            }
 
-            traversalOrder.pop();
-            return;
+            //push into the stack
+            traversalOrder.push(randomCell);
+            counters.push(randomCell, traversalOrder.size());
         }
-
-        //push into the stack
-        traversalOrder.push(randomCell);
-    }
+    } // end of class Stepper
 
     private ArrayList<Cell> checkAllVisited(Cell[] neighbours) {
         ArrayList<Cell> unvisited = new ArrayList<>();
@@ -147,17 +306,11 @@ public class RecursiveBacktrackerGenerator implements MazeGenerator {
         return unvisited;
     }
 
-    private ArrayList<Cell> checkAllVisited(Maze maze) {
-        ArrayList<Cell> unvisited = new ArrayList<>();
-        int numCol = maze.type == Maze.HEX ? ((maze.sizeR + 1) / 2 + maze.sizeC) : maze.sizeC;
-        for (int i = 0; i < maze.sizeR; i++) {
-            for (int j = 0; j < numCol; j++) {
-                if (maze.map[i][j] == null)
-                    continue;
-
-                if (!maze.map[i][j].visited)
-                    unvisited.add(maze.map[i][j]);
-            }
+    private long checkAllVisited(Maze maze) {
+        long unvisited = 0;
+        for (int id = 0; id < maze.numCells(); id++) {
+            if (!maze.cellAt(id).visited)
+                unvisited++;
         }
         return unvisited;
     }
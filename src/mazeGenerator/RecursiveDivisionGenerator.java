@@ -0,0 +1,185 @@
+package mazeGenerator;
+
+import maze.Cell;
+import maze.Maze;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recursive division maze generator, giving long straight corridors.
+ * <p>
+ * Algorithm:
+ * 1. Start with a chamber holding the whole maze and no inner walls.
+ * 2. Divide the chamber across its longer side (a random side if square) by
+ * a wall at a random position, leaving one random gap in it.
+ * 3. Divide both sub chambers the same way, until chambers are one cell
+ * wide.
+ * <p>
+ * Generators start from an all-wall maze, so instead of removing every inner
+ * wall and adding the dividing walls back, a chamber only opens the gap of
+ * its dividing wall and a one cell wide chamber opens the walls along it.
+ * The walls left are exactly those recursive division adds.
+ * <p>
+ * Sub chambers do not share walls, so chambers of more than SEQUENTIAL_CELLS
+ * cells are divided in parallel on the common fork/join pool. Every chamber
+ * draws from its own MazeRandom stream, split from its parent's, so the same
+ * seed gives the same maze however the work is scheduled, stepped or not.
+ * Only normal mazes can be divided.
+ *
+ * @author Lettisia George
+ */
+public class RecursiveDivisionGenerator implements MazeGenerator {
+
+    /**
+     * Chambers with fewer cells are divided on the thread that reached them
+     */
+    public static final int SEQUENTIAL_CELLS = 1 << 12;
+
+    /**
+     * @throws IllegalArgumentException if the maze is not a normal maze.
+     */
+    @Override
+    public void generateMaze(Maze maze, long seed) {
+        if (maze.type != Maze.NORMAL)
+            throw new IllegalArgumentException("Recursive division only generates normal mazes.");
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+
+        // cells of a lazy maze are built on first access, which is not
+        // thread safe
+        Chamber whole = new Chamber(maze, new MazeRandom(seed), 0, 0, maze.sizeR, maze.sizeC, !maze.isLazy);
+        if (maze.isLazy)
+            whole.compute();
+        else
+            ForkJoinPool.commonPool().invoke(whole);
+        maze.counters.wallsRemoved += whole.wallsRemoved;
+
+        if (event != null)
+            event.finish(maze, this, seed);
+    } // end of generateMaze()
+
+    /**
+     * A step divides one chamber, or opens one wall of a corridor. Chambers
+     * left to divide are kept on a stack and divided on the calling thread.
+     *
+     * @throws IllegalArgumentException if the maze is not a normal maze.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze, long seed) {
+        if (maze.type != Maze.NORMAL)
+            throw new IllegalArgumentException("Recursive division only generates normal mazes.");
+        ArrayDeque<Chamber> chambers = new ArrayDeque<>();
+        chambers.push(new Chamber(maze, new MazeRandom(seed), 0, 0, maze.sizeR, maze.sizeC, false));
+        return maxSteps -> {
+            for (int steps = 0; steps < maxSteps && !chambers.isEmpty(); steps++) {
+                Chamber chamber = chambers.pop();
+                for (Chamber sub : chamber.divide())
+                    chambers.push(sub);
+            }
+            return chambers.isEmpty();
+        };
+    } // end of stepper()
+
+    /**
+     * Chamber of rows r0 to r0 + height - 1 and columns c0 to c0 + width - 1.
+     */
+    private static class Chamber extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Maze maze;
+        private final MazeRandom random;
+        private final int r0;
+        private final int c0;
+        private final int height;
+        private final int width;
+        private final boolean isParallel;
+
+        /**
+         * Walls removed in this chamber and its sub chambers, read after join.
+         * Chambers divided on one thread count them in the maze counters.
+         */
+        long wallsRemoved = 0;
+
+        Chamber(Maze maze, MazeRandom random, int r0, int c0, int height, int width, boolean isParallel) {
+            this.maze = maze;
+            this.random = random;
+            this.r0 = r0;
+            this.c0 = c0;
+            this.height = height;
+            this.width = width;
+            this.isParallel = isParallel;
+        }
+
+        @Override
+        protected void compute() {
+            // a corridor, open it
+            if (width == 1) {
+                for (int r = r0; r < r0 + height - 1; r++)
+                    open(maze.cellAt(r, c0), Maze.NORTH);
+                return;
+            }
+            if (height == 1) {
+                for (int c = c0; c < c0 + width - 1; c++)
+                    open(maze.cellAt(r0, c), Maze.EAST);
+                return;
+            }
+
+            Chamber sub[] = divide();
+            if (isParallel && (long) height * width > SEQUENTIAL_CELLS) {
+                invokeAll(sub[0], sub[1]);
+            } else {
+                sub[0].compute();
+                sub[1].compute();
+            }
+            wallsRemoved += sub[0].wallsRemoved + sub[1].wallsRemoved;
+        }
+
+        /**
+         * Open the gap of the wall dividing this chamber, or the first wall
+         * along a corridor.
+         *
+         * @return The chambers left to divide.
+         */
+        Chamber[] divide() {
+            if (width == 1 && height == 1)
+                return new Chamber[0];
+            if (width == 1) {
+                open(maze.cellAt(r0, c0), Maze.NORTH);
+                return new Chamber[] { new Chamber(maze, random, r0 + 1, c0, height - 1, 1, isParallel) };
+            }
+            if (height == 1) {
+                open(maze.cellAt(r0, c0), Maze.EAST);
+                return new Chamber[] { new Chamber(maze, random, r0, c0 + 1, 1, width - 1, isParallel) };
+            }
+
+            boolean isHorizontal = height > width || height == width && random.nextBoolean();
+            if (isHorizontal) {
+                // wall between rows r0 + k - 1 and r0 + k
+                int k = 1 + random.nextInt(height - 1);
+                open(maze.cellAt(r0 + k - 1, c0 + random.nextInt(width)), Maze.NORTH);
+                return new Chamber[] { new Chamber(maze, random.split(0), r0, c0, k, width, isParallel),
+                        new Chamber(maze, random.split(1), r0 + k, c0, height - k, width, isParallel) };
+            }
+            // wall between columns c0 + k - 1 and c0 + k
+            int k = 1 + random.nextInt(width - 1);
+            open(maze.cellAt(r0 + random.nextInt(height), c0 + k - 1), Maze.EAST);
+            return new Chamber[] { new Chamber(maze, random.split(0), r0, c0, height, k, isParallel),
+                    new Chamber(maze, random.split(1), r0, c0 + k, height, width - k, isParallel) };
+        }
+
+        private void open(Cell cell, int dir) {
+            cell.wall[dir].present = false;
+            if (isParallel)
+                wallsRemoved++;
+            else
+                maze.counters.removeWall(cell, dir);
+        }
+    } // end of class Chamber
+
+} // end of class RecursiveDivisionGenerator
@@ -0,0 +1,148 @@
+package mazeGenerator;
+
+import maze.Cell;
+import maze.Maze;
+import maze.MazeGeneratedEvent;
+import maze.MazeRecording;
+import maze.MazeStepper;
+import maze.OffHeapMaze;
+
+/**
+ * Sidewinder maze generator, fast with a bias towards vertical corridors
+ * less marked than the binary tree's.
+ * <p>
+ * Algorithm: the top row is one corridor. In every other row, cells are
+ * added to a run going east; at random, and always at the right column, the
+ * run is closed by carving north from a random cell of the run, and a new
+ * run starts at the next cell.
+ * <p>
+ * Whether a cell closes its run is decided 64 cells per random long, so the
+ * version for OffHeapMaze writes the walls of 32 cells with one call, finding
+ * the runs closed among them with bit scans. Both versions make the same
+ * choices, so the same seed gives the same maze. Only normal mazes can be
+ * generated.
+ *
+ * @author Lettisia George
+ */
+public class SidewinderGenerator implements MazeGenerator {
+
+    /**
+     * @throws IllegalArgumentException if the maze is not a normal maze.
+     */
+    @Override
+    public void generateMaze(Maze maze, long seed) {
+        MazeStepper stepper = stepper(maze, seed);
+        MazeGeneratedEvent event = MazeRecording.isActive() ? new MazeGeneratedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper.finish();
+        if (event != null)
+            event.finish(maze, this, seed);
+    } // end of generateMaze()
+
+    /**
+     * A step decides one cell, row by row.
+     *
+     * @throws IllegalArgumentException if the maze is not a normal maze.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze, long seed) {
+        if (maze.type != Maze.NORMAL)
+            throw new IllegalArgumentException("Sidewinder only generates normal mazes.");
+        return new Stepper(maze, seed);
+    } // end of stepper()
+
+    /**
+     * Sidewinder on a maze stored off the heap, 32 cells at a time.
+     *
+     * @param maze All-wall normal maze.
+     * @param seed Seed of the random choices.
+     * @throws IllegalArgumentException if the maze is not a normal maze.
+     */
+    public void generateMaze(OffHeapMaze maze, long seed) {
+        if (maze.type != Maze.NORMAL)
+            throw new IllegalArgumentException("Sidewinder only generates normal mazes.");
+        MazeRandom random = new MazeRandom(seed);
+
+        long coins = 0;
+        for (int r = 0; r < maze.sizeR; r++) {
+            long rowId = (long) r * maze.sizeC;
+            int runStart = 0;
+            for (int c = 0; c < maze.sizeC; c += WallBits.CELLS) {
+                int count = Math.min(WallBits.CELLS, maze.sizeC - c);
+                long all = (1L << count) - 1;
+                // the right column closes every run
+                long last = c + count == maze.sizeC ? 1L << count - 1 : 0;
+                if (r == maze.sizeR - 1) {
+                    maze.setWallBits(rowId + c, count, WallBits.of(last, all));
+                    continue;
+                }
+
+                if (c % 64 == 0)
+                    coins = random.nextLong();
+                // bit i set if cell c + i closes its run
+                long close = (~(coins >>> (c & 63)) | last) & all;
+                long north = all;
+                for (long left = close; left != 0; left &= left - 1) {
+                    int end = c + Long.numberOfTrailingZeros(left);
+                    int pick = runStart + random.nextInt(end - runStart + 1);
+                    if (pick >= c)
+                        north &= ~(1L << pick - c);
+                    else
+                        // the run started in cells already written
+                        maze.setWallPresent(rowId + pick, Maze.NORTH, false);
+                    runStart = end + 1;
+                }
+                maze.setWallBits(rowId + c, count, WallBits.of(close, north));
+            }
+        }
+    } // end of generateMaze()
+
+    private static void carve(Maze maze, Cell cell, int dir) {
+        cell.wall[dir].present = false;
+        maze.counters.removeWall(cell, dir);
+    } // end of carve()
+
+    private static class Stepper implements MazeStepper {
+        private final Maze maze;
+        private final MazeRandom random;
+        private long coins = 0;
+        private int r = 0;
+        private int c = 0;
+        private int runStart = 0;
+
+        Stepper(Maze maze, long seed) {
+            this.maze = maze;
+            random = new MazeRandom(seed);
+        }
+
+        @Override
+        public boolean step(int maxSteps) {
+            for (int steps = 0; steps < maxSteps && r < maze.sizeR; steps++) {
+                if (r == maze.sizeR - 1) {
+                    if (c < maze.sizeC - 1)
+                        carve(maze, maze.cellAt(r, c), Maze.EAST);
+                } else {
+                    if (c % 64 == 0)
+                        coins = random.nextLong();
+                    if (c < maze.sizeC - 1 && (coins >>> (c & 63) & 1) != 0) {
+                        // extend the run east
+                        carve(maze, maze.cellAt(r, c), Maze.EAST);
+                    } else {
+                        // close the run
+                        Cell cell = maze.cellAt(r, runStart + random.nextInt(c - runStart + 1));
+                        carve(maze, cell, Maze.NORTH);
+                        runStart = c + 1;
+                    }
+                }
+                if (++c == maze.sizeC) {
+                    c = 0;
+                    r++;
+                    runStart = 0;
+                }
+            }
+            return r == maze.sizeR;
+        }
+    } // end of class Stepper
+
+} // end of class SidewinderGenerator
@@ -0,0 +1,42 @@
+package mazeGenerator;
+
+/**
+ * Bit tricks shared by the generators deciding whole rows of a normal
+ * OffHeapMaze at once (see OffHeapMaze.setWallBits()). 32 cells fill a long,
+ * cell i owning bit 2i (east wall) and bit 2i + 1 (north wall).
+ *
+ * @author Lettisia George
+ */
+final class WallBits {
+
+    /**
+     * Cells written by one call of OffHeapMaze.setWallBits()
+     */
+    static final int CELLS = 32;
+
+    private WallBits() {
+    }
+
+    /**
+     * Wall bits of up to 32 cells.
+     *
+     * @param east  Bit i set if the east wall of cell i is present.
+     * @param north Bit i set if the north wall of cell i is present.
+     */
+    static long of(long east, long north) {
+        return spread(east) | spread(north) << 1;
+    }
+
+    /**
+     * Move bit i of the low 32 bits of x to bit 2i.
+     */
+    static long spread(long x) {
+        x &= 0xFFFFFFFFL;
+        x = (x | x << 16) & 0x0000FFFF0000FFFFL;
+        x = (x | x << 8) & 0x00FF00FF00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x << 2) & 0x3333333333333333L;
+        return (x | x << 1) & 0x5555555555555555L;
+    }
+
+} // end of class WallBits
@@ -2,6 +2,9 @@ package mazeSolver;
 
 import maze.Cell;
 import maze.Maze;
+import maze.MazeRecording;
+import maze.MazeSolvedEvent;
+import maze.MazeStepper;
 
 import java.util.Stack;
 
@@ -55,10 +58,29 @@ public class BiDirectionalRecursiveBacktrackerSolver implements MazeSolver {
 
     @Override
     public void solveMaze(Maze maze) {
+        MazeSolvedEvent event = MazeRecording.isActive() ? new MazeSolvedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper(maze).finish();
+        if (event != null)
+            event.finish(maze, this, solved, cellsExplored);
+
+    } // end of solveMaze()
+
+
+    /**
+     * A step is one iteration of DFS from each end.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze) {
         this.maze = maze;
+        solved = false;
+        cellsExplored = 0;
+        traverseFromStart.clear();
+        traverseFromEnd.clear();
 
         // Mark all cells as unvisited
-        markCellsUnvisited();
+        maze.resetVisited();
         // Start with the entrance and exit
         Cell entrance = maze.entrance;
         Cell exit = maze.exit;
@@ -71,24 +93,30 @@ public class BiDirectionalRecursiveBacktrackerSolver implements MazeSolver {
         // Add each to the correct traversal stack
         traverseFromStart.push(entrance);
         traverseFromEnd.push(exit);
+        maze.counters.push(entrance, 1);
+        maze.counters.push(exit, 2);
         // Add one each for exit and entrance
         cellsExplored += 2;
-        // used for loop stopping condition
-        boolean done = false;
-
-        // Loop that does the work. Check if paths have met in the middle and
-        // whether either stack is empty
-        while (!done && !traverseFromStart.empty() && !traverseFromEnd.empty()) {
-            // Perform one iteration of DFS on each traverse path
-            // Done will be true is the solution paths meet
-            done = isDoneMazeIteration(traverseFromStart, traverseFromEnd);
-            done = done || isDoneMazeIteration(traverseFromEnd, traverseFromStart);
-        }
 
-        // If done is true then we made it through the maze!
-        solved = done;
+        return maxSteps -> {
+            // used for loop stopping condition
+            boolean done = solved;
+
+            // Loop that does the work. Check if paths have met in the middle and
+            // whether either stack is empty
+            for (int steps = 0; steps < maxSteps && !done && !traverseFromStart.empty()
+                    && !traverseFromEnd.empty(); steps++) {
+                // Perform one iteration of DFS on each traverse path
+                // Done will be true is the solution paths meet
+                done = isDoneMazeIteration(traverseFromStart, traverseFromEnd);
+                done = done || isDoneMazeIteration(traverseFromEnd, traverseFromStart);
+            }
 
-    } // end of solveMaze()
+            // If done is true then we made it through the maze!
+            solved = done;
+            return done || traverseFromStart.empty() || traverseFromEnd.empty();
+        };
+    } // end of stepper()
 
 
     /**
@@ -109,6 +137,7 @@ public class BiDirectionalRecursiveBacktrackerSolver implements MazeSolver {
                 entrance = entrance.tunnelTo;
                 // add it to the stack
                 sameDirection.push(entrance);
+                maze.counters.push(entrance, sameDirection.size() + otherDirection.size());
                 // set it as visited
                 entrance.visited = true;
                 // draw a foot print
@@ -124,14 +153,16 @@ public class BiDirectionalRecursiveBacktrackerSolver implements MazeSolver {
 
         // Loop through each direction looking for unvisited cells
         for (int i = 0; i < Maze.NUM_DIR && nextEntrance == null; i++) {
+            Cell neigh = maze.neighbour(entrance, i);
             // Cells must be not null and there must be no wall
-            if (entrance.neigh[i] != null && !entrance.wall[i].present) {
+            if (neigh != null && !entrance.wall[i].present) {
                 // If the cell is not visited we select it as the next cell
-                if (!entrance.neigh[i].visited) {
+                if (!neigh.visited) {
                     // select the neighbour of entrance in direction i
-                    nextEntrance = entrance.neigh[i];
+                    nextEntrance = neigh;
                     // add to the appropriate stack
                     sameDirection.push(nextEntrance);
+                    maze.counters.push(nextEntrance, sameDirection.size() + otherDirection.size());
                     // Mark the new cell as visited
                     nextEntrance.visited = true;
                     // increment the number of cells explored
@@ -141,36 +172,19 @@ public class BiDirectionalRecursiveBacktrackerSolver implements MazeSolver {
                 } else {
                     // If the cell has been visited check if it is part of the
                     // solution found from the other end and stop if it is
-                    done = done || otherDirection.contains(entrance.neigh[i]);
+                    done = done || otherDirection.contains(neigh);
                 }
             }
         }
         // If no unvisited cell was found remove current cell from stack
         if (nextEntrance == null) {
             sameDirection.pop();
+            maze.counters.pop();
         }
 
         return done;
     }
 
-    /**
-     * Mark each cell in the maze as unvisited
-     */
-    private void markCellsUnvisited() {
-        // Setup special number of columns for hex mazes
-        int numCol = maze.type == Maze.HEX ? ((maze.sizeR + 1) / 2 + maze.sizeC) : maze.sizeC;
-
-        // Mark every cell as not visited
-        for (int i = 0; i < maze.sizeR; i++) {
-            for (int j = 0; j < numCol; j++) {
-                // false == not visited
-                if (maze.map[i][j] != null)
-                    maze.map[i][j].visited = false;
-            }
-        }
-    }
-
-
     @Override
     public boolean isSolved() {
         return solved;
@@ -0,0 +1,406 @@
+package mazeSolver;
+
+import maze.Maze;
+import maze.MazeFile;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Breadth first search solver for mazes larger than memory, reading the walls
+ * from a memory-mapped MazeFile.
+ * <p>
+ * ALGORITHM : external memory BFS (Munagala and Ranade)
+ * In an undirected graph every neighbour of BFS level t is in level t - 1, t
+ * or t + 1, so
+ * <p>
+ * level(t + 1) = neighbours(level(t)) - level(t) - level(t - 1)
+ * <p>
+ * Every level is kept as a sorted run of cell ids in a levels file. The
+ * neighbours of a level are collected in memory until memoryIds of them are
+ * held, sorted and spilled to a run file; the runs are then merged, without
+ * duplicates, against the two previous levels. All files are read and written
+ * sequentially, and as levels are sorted by id, walls are read from the maze
+ * file in order of row as well. Once the exit is reached, the path is traced
+ * back through the levels, binary searching each one for a neighbour of the
+ * current cell.
+ * <p>
+ * The path file holds the ids (r * sizeC + c, see MazeFile) of the cells on
+ * the path from the entrance to the exit as big endian longs.
+ *
+ * @author Lettisia George
+ */
+public class ExternalBfsSolver {
+    private final File workDir;
+    private final int memoryIds;
+    private boolean isSolved;
+    private long cellsExplored;
+    private long pathLength;
+
+    // level t is ids levelStart[t] to levelStart[t + 1] - 1 of the levels file
+    private long levelStart[];
+    private int numLevels;
+
+    // neighbours collected before they are sorted, grown up to memoryIds
+    private long buffer[];
+
+    /**
+     * @param workDir   Directory of the temporary run and level files, null for
+     *                  the default temporary directory.
+     * @param memoryIds Number of cell ids held in memory before they are
+     *                  spilled to a run file.
+     */
+    public ExternalBfsSolver(File workDir, int memoryIds) {
+        if (memoryIds < 1)
+            throw new IllegalArgumentException("memoryIds must be positive");
+        this.workDir = workDir;
+        this.memoryIds = memoryIds;
+        buffer = new long[Math.min(1024, memoryIds)];
+    }
+
+    /**
+     * Find the shortest path from the entrance to the exit.
+     *
+     * @param maze     Maze file, e.g. opened by MazeFile.open(File).
+     * @param pathFile Destination of the path, overwritten if it exists, left
+     *                 untouched if the exit can not be reached.
+     * @throws IOException if a temporary file or the path file can not be
+     *                     written.
+     */
+    public void solveMaze(MazeFile maze, File pathFile) throws IOException {
+        isSolved = false;
+        cellsExplored = 0;
+        pathLength = 0;
+        levelStart = new long[64];
+        levelStart[1] = 1;
+        numLevels = 1;
+
+        File levelsFile = File.createTempFile("bfs", ".levels", workDir);
+        try (DataOutputStream levelsOut = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(levelsFile), 1 << 16));
+             FileChannel levels = new RandomAccessFile(levelsFile, "r").getChannel()) {
+            levelsOut.writeLong(maze.entranceId());
+            for (int t = 0; levelStart[t + 1] > levelStart[t]; t++) {
+                cellsExplored += levelStart[t + 1] - levelStart[t];
+                levelsOut.flush();
+                if (contains(levels, t, maze.exitId())) {
+                    isSolved = true;
+                    break;
+                }
+                addLevel(levelStart[t + 1] + nextLevel(maze, levels, levelsOut, t));
+            }
+
+            if (isSolved)
+                writePath(maze, levels, pathFile);
+        } finally {
+            if (!levelsFile.delete())
+                levelsFile.deleteOnExit();
+        }
+    } // end of solveMaze()
+
+    public boolean isSolved() {
+        return isSolved;
+    } // end of isSolved()
+
+    /**
+     * @return Number of cells reached before the exit, or all cells reachable
+     * from the entrance if the exit can not be reached.
+     */
+    public long cellsExplored() {
+        return cellsExplored;
+    } // end of cellsExplored()
+
+    /**
+     * @return Number of cells on the path, entrance and exit included.
+     */
+    public long pathLength() {
+        return pathLength;
+    } // end of pathLength()
+
+    /**
+     * Append level current + 1 to the levels file.
+     *
+     * @return Number of cells in the new level.
+     */
+    private long nextLevel(MazeFile maze, FileChannel levels, DataOutputStream levelsOut, int current)
+            throws IOException {
+        // neighbours of the current level, in sorted runs
+        List<Run> runs = new ArrayList<>();
+        List<File> runFiles = new ArrayList<>();
+        int count = 0;
+        try {
+            try (Run level = new FileRun(levels, levelStart[current], levelStart[current + 1], false)) {
+                for (long id = level.peek(); id != Run.END; level.advance(), id = level.peek()) {
+                    for (int dir = -1; dir < Maze.NUM_DIR; dir++) {
+                        long next = dir < 0 ? maze.tunnel(id) : maze.neighbour(id, dir);
+                        if (next < 0 || dir >= 0 && maze.isWallPresent(id, dir))
+                            continue;
+                        if (count == buffer.length && count < memoryIds) {
+                            buffer = Arrays.copyOf(buffer, (int) Math.min(2L * count, memoryIds));
+                        } else if (count == buffer.length) {
+                            runFiles.add(spill(buffer, count));
+                            count = 0;
+                        }
+                        buffer[count++] = next;
+                    }
+                }
+            }
+            if (runFiles.isEmpty()) {
+                Arrays.sort(buffer, 0, count);
+                runs.add(new ArrayRun(buffer, count));
+            } else {
+                if (count > 0)
+                    runFiles.add(spill(buffer, count));
+                for (File file : runFiles)
+                    runs.add(new FileRun(new RandomAccessFile(file, "r").getChannel(), 0, file.length() / 8, true));
+            }
+
+            // merge, dropping duplicates and cells of the last two levels
+            try (Run last = new FileRun(levels, levelStart[current], levelStart[current + 1], false);
+                 Run beforeLast = current > 0
+                         ? new FileRun(levels, levelStart[current - 1], levelStart[current], false)
+                         : new ArrayRun(new long[0], 0)) {
+                PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> Long.compare(a.peek(), b.peek()));
+                for (Run run : runs)
+                    if (run.peek() != Run.END)
+                        queue.add(run);
+                long size = 0;
+                long previous = -1;
+                while (!queue.isEmpty()) {
+                    Run run = queue.poll();
+                    long id = run.peek();
+                    run.advance();
+                    if (run.peek() != Run.END)
+                        queue.add(run);
+                    if (id == previous)
+                        continue;
+                    previous = id;
+                    while (last.peek() < id)
+                        last.advance();
+                    while (beforeLast.peek() < id)
+                        beforeLast.advance();
+                    if (last.peek() != id && beforeLast.peek() != id) {
+                        levelsOut.writeLong(id);
+                        size++;
+                    }
+                }
+                return size;
+            }
+        } finally {
+            for (Run run : runs)
+                run.close();
+            for (File file : runFiles)
+                if (!file.delete())
+                    file.deleteOnExit();
+        }
+    } // end of nextLevel()
+
+    /**
+     * Trace the path back from the exit and write it to the path file,
+     * last cell first, at the end of the file.
+     */
+    private void writePath(MazeFile maze, FileChannel levels, File pathFile) throws IOException {
+        int exitLevel = numLevels - 1;
+        pathLength = exitLevel + 1;
+        try (RandomAccessFile raf = new RandomAccessFile(pathFile, "rw"); FileChannel out = raf.getChannel()) {
+            raf.setLength(pathLength * 8);
+            ByteBuffer block = ByteBuffer.allocate(1 << 16);
+            long pos = pathLength * 8;
+            long id = maze.exitId();
+            for (int t = exitLevel; t >= 0; t--) {
+                if (block.remaining() == 0)
+                    pos = flushBackwards(out, block, pos);
+                // fill the block from its end
+                block.putLong(block.capacity() - block.position() - 8, id);
+                block.position(block.position() + 8);
+                if (t > 0)
+                    id = previousCell(maze, levels, t - 1, id);
+            }
+            flushBackwards(out, block, pos);
+        }
+    } // end of writePath()
+
+    /**
+     * Write the filled end of block so it ends at pos.
+     *
+     * @return Position of the start of what was written.
+     */
+    private static long flushBackwards(FileChannel out, ByteBuffer block, long pos) throws IOException {
+        int length = block.position();
+        ByteBuffer data = block.duplicate();
+        data.limit(block.capacity());
+        data.position(block.capacity() - length);
+        pos -= length;
+        for (long at = pos; data.hasRemaining(); )
+            at += out.write(data, at);
+        block.clear();
+        return pos;
+    } // end of flushBackwards()
+
+    /**
+     * @return An open neighbour (or tunnel end) of id in the given level.
+     */
+    private long previousCell(MazeFile maze, FileChannel levels, int level, long id) throws IOException {
+        for (int dir = -1; dir < Maze.NUM_DIR; dir++) {
+            long prev = dir < 0 ? maze.tunnel(id) : maze.neighbour(id, dir);
+            if (prev < 0 || dir >= 0 && maze.isWallPresent(id, dir))
+                continue;
+            if (contains(levels, level, prev))
+                return prev;
+        }
+        throw new IllegalStateException("Cell " + id + " has no neighbour in level " + level + ".");
+    } // end of previousCell()
+
+    /**
+     * Binary search a level, already flushed to the levels file, for an id.
+     */
+    private boolean contains(FileChannel levels, int level, long id) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(8);
+        long lo = levelStart[level];
+        long hi = levelStart[level + 1] - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            value.clear();
+            while (value.hasRemaining())
+                if (levels.read(value, mid * 8 + value.position()) < 0)
+                    throw new IOException("Levels file is truncated.");
+            long found = value.getLong(0);
+            if (found == id)
+                return true;
+            if (found < id)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+        return false;
+    } // end of contains()
+
+    /**
+     * Record the end of the level just written.
+     */
+    private void addLevel(long end) {
+        if (numLevels + 1 == levelStart.length)
+            levelStart = Arrays.copyOf(levelStart, 2 * levelStart.length);
+        levelStart[++numLevels] = end;
+    } // end of addLevel()
+
+    /**
+     * Sort the first count ids of buffer and write them to a new run file.
+     */
+    private File spill(long buffer[], int count) throws IOException {
+        Arrays.sort(buffer, 0, count);
+        File file = File.createTempFile("bfs", ".run", workDir);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            long previous = -1;
+            for (int i = 0; i < count; i++)
+                if (buffer[i] != previous)
+                    out.writeLong(previous = buffer[i]);
+        }
+        return file;
+    } // end of spill()
+
+    /**
+     * Sorted sequence of ids read one at a time.
+     */
+    private interface Run extends Closeable {
+        long END = Long.MAX_VALUE;
+
+        /**
+         * @return The current id, END once all are read.
+         */
+        long peek();
+
+        void advance() throws IOException;
+    }
+
+    private static class ArrayRun implements Run {
+        private final long ids[];
+        private final int count;
+        private int index = 0;
+
+        ArrayRun(long ids[], int count) {
+            this.ids = ids;
+            this.count = count;
+        }
+
+        @Override
+        public long peek() {
+            return index < count ? ids[index] : END;
+        }
+
+        @Override
+        public void advance() {
+            index++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Ids from to to - 1 of a file of longs, read in blocks.
+     */
+    private static class FileRun implements Run {
+        private final FileChannel channel;
+        private final boolean isOwner;
+        private final ByteBuffer block;
+        private long pos;
+        private final long end;
+
+        /**
+         * @param isOwner Whether the channel is closed with the run.
+         */
+        FileRun(FileChannel channel, long from, long to, boolean isOwner) throws IOException {
+            this.channel = channel;
+            this.isOwner = isOwner;
+            // most levels of a perfect maze hold a few cells
+            this.block = ByteBuffer.allocate((int) Math.min(1 << 16, Math.max(8, (to - from) * 8)));
+            this.pos = from * 8;
+            this.end = to * 8;
+            block.limit(0);
+            fill();
+        }
+
+        @Override
+        public long peek() {
+            return block.hasRemaining() ? block.getLong(block.position()) : END;
+        }
+
+        @Override
+        public void advance() throws IOException {
+            block.position(block.position() + 8);
+            if (!block.hasRemaining())
+                fill();
+        }
+
+        private void fill() throws IOException {
+            block.clear();
+            block.limit((int) Math.min(block.capacity(), end - pos));
+            while (block.hasRemaining())
+                if (channel.read(block, pos + block.position()) < 0)
+                    throw new IOException("Run file is truncated.");
+            pos += block.limit();
+            block.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isOwner)
+                channel.close();
+        }
+    }
+
+} // end of class ExternalBfsSolver
@@ -1,6 +1,7 @@
 package mazeSolver;
 
 import maze.Maze;
+import maze.MazeStepper;
 
 /**
  * Interface of a maze solver.
@@ -18,6 +19,30 @@ public interface MazeSolver {
 	 */
 	void solveMaze(Maze maze);
 
+	/**
+	 * Prepare to solve a maze a bounded number of steps at a time, see
+	 * MazeStepper. isSolved() and cellsExplored() describe the run once the
+	 * stepper is done. Solvers that can not be stepped solve the whole maze in
+	 * the first step.
+	 * 
+	 * @param maze
+	 *            The maze to solve.
+	 * @return A stepper that has not run any step yet.
+	 */
+	default MazeStepper stepper(Maze maze) {
+		return new MazeStepper() {
+			private boolean isDone = false;
+
+			@Override
+			public boolean step(int maxSteps) {
+				if (!isDone)
+					solveMaze(maze);
+				isDone = true;
+				return true;
+			}
+		};
+	} // end of stepper()
+
 	/**
 	 * Use after solveMaze(maze), to check whether the maze is solved.
 	 * 
@@ -33,4 +58,30 @@ public interface MazeSolver {
 	 *         and no marks are given (or lost) on it.
 	 */
 	int cellsExplored();
+
+	/**
+	 * Construct the solver named in parameter files.
+	 * 
+	 * @param name
+	 *            "wallFollower", "biDirrecurBack", "sample" or "none".
+	 * @return A new solver, null for "none".
+	 * @throws IllegalArgumentException
+	 *             if the name is unknown.
+	 */
+	static MazeSolver forName(String name) {
+		switch (name) {
+		case "wallFollower":
+			return new WallFollowerSolver();
+		case "biDirrecurBack":
+			return new BiDirectionalRecursiveBacktrackerSolver();
+		// sample solver to help you get started
+		case "sample":
+			return new SampleSolver();
+		// no solver
+		case "none":
+			return null;
+		default:
+			throw new IllegalArgumentException("Unknown maze solver name.");
+		}
+	} // end of forName()
 } // end of interface mazeGenerator
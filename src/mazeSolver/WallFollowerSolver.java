@@ -2,6 +2,10 @@ package mazeSolver;
 
 import maze.Cell;
 import maze.Maze;
+import maze.MazeRecording;
+import maze.MazeSolvedEvent;
+import maze.MazeStepper;
+import maze.OffHeapMaze;
 import maze.Wall;
 
 import java.util.Stack;
@@ -29,7 +33,7 @@ public class WallFollowerSolver implements MazeSolver {
     private final static int DEFAULT_DIRECTION = -1;
     private final Stack<Cell> traverseOrder;
     private boolean isSolved;
-    private int cellsExplored;
+    private long cellsExplored;
     private Maze maze;
     private int pathDirection;
     //for different directions
@@ -51,34 +55,88 @@ public class WallFollowerSolver implements MazeSolver {
 
     @Override
     public void solveMaze(Maze maze) {
+        MazeSolvedEvent event = MazeRecording.isActive() ? new MazeSolvedEvent() : null;
+        if (event != null)
+            event.begin();
+        stepper(maze).finish();
+        if (event != null)
+            event.finish(maze, this, isSolved, cellsExplored);
+
+    } // end of solveMaze()
+
+    /**
+     * A step is one call of wallFollower(): a move to the next cell or back
+     * to the previous one.
+     */
+    @Override
+    public MazeStepper stepper(Maze maze) {
         this.maze = maze;
+        this.isSolved = false;
+        this.cellsExplored = 0;
+        this.pathDirection = DEFAULT_DIRECTION;
+        traverseOrder.clear();
 
         //mark all the cells in the map to be unvisited
-        setCellsVisitedValueAsDefault();
+        maze.resetVisited();
 
         //pick entrance as the first traverse cell
         traverseOrder.push(maze.entrance);
+        maze.counters.push(maze.entrance, traverseOrder.size());
 
-        while (!isSolved) {
-            wallFollower();
-        }
-
-    } // end of solveMaze()
+        return maxSteps -> {
+            for (int steps = 0; steps < maxSteps && !isSolved && !traverseOrder.isEmpty(); steps++)
+                wallFollower();
+            return isSolved || traverseOrder.isEmpty();
+        };
+    } // end of stepper()
 
     /**
-     * Mark each cell in the maze to be unvisited
+     * Right-hand rule on a maze stored off the heap, for mazes too large to
+     * build as Cell objects. The mark of every visited cell holds the way back
+     * to the cell it was reached from, which replaces the stack of cells; after
+     * solving, the path is found by following the marks back from the exit.
+     *
+     * @param maze Perfect maze, its marks are overwritten.
      */
-    private void setCellsVisitedValueAsDefault() {
-        int row = maze.sizeR;
-        int col = maze.type == Maze.HEX ? ((maze.sizeR + 1) / 2 + maze.sizeC) : maze.sizeC;
-
-        for (int i = 0; i < row; i++) {
-            for (int j = 0; j < col; j++) {
-                if (maze.map[i][j] != null)
-                    maze.map[i][j].visited = false;
+    public void solveMaze(OffHeapMaze maze) {
+        maze.clearMarks();
+
+        long current = maze.entranceId();
+        maze.setMark(current, OffHeapMaze.ROOT);
+        while (current >= 0) {
+            cellsExplored++;
+            if (current == maze.exitId()) {
+                isSolved = true;
+                return;
+            }
+
+            //tunnel first, then the available path on the right hand side
+            long next = maze.tunnel(current);
+            if (next >= 0 && maze.getMark(next) == OffHeapMaze.UNVISITED) {
+                maze.setMark(next, OffHeapMaze.VIA_TUNNEL);
+                current = next;
+                continue;
+            }
+
+            int dir[] = directionOrder(pathDirection);
+            next = -1;
+            for (int i = 0; i < dir.length && next < 0; i++) {
+                long cell = maze.neighbour(current, dir[i]);
+                if (cell >= 0 && maze.getMark(cell) == OffHeapMaze.UNVISITED && !maze.isWallPresent(current, dir[i])) {
+                    pathDirection = dir[i];
+                    maze.setBack(cell, Maze.oppoDir[dir[i]]);
+                    next = cell;
+                }
+            }
+
+            if (next >= 0) {
+                current = next;
+            } else {
+                //dead end, go back the previous cell
+                current = maze.back(current);
             }
         }
-    } // end of setCellsVisitedValueAsDefault()
+    } // end of solveMaze()
 
     /**
      * boolean wallFollower()
@@ -115,11 +173,13 @@ public class WallFollowerSolver implements MazeSolver {
         boolean isDeadEnd = isDeadEnd(current);
         if (isDeadEnd) {
             traverseOrder.pop();
+            maze.counters.pop();
             return;
         }
 
         Cell nextCell = checkNextPath(current);
         traverseOrder.push(nextCell);
+        maze.counters.push(nextCell, traverseOrder.size());
     }
 
     /**
@@ -135,7 +195,7 @@ public class WallFollowerSolver implements MazeSolver {
             if (current.tunnelTo != null && !current.tunnelTo.visited)
                 return false;
 
-            if (current.wall[i] == null || current.neigh[i] == null)
+            if (current.wall[i] == null || maze.neighbour(current, i) == null)
                 continue;
 
             if (!current.wall[i].present) {
@@ -167,38 +227,13 @@ public class WallFollowerSolver implements MazeSolver {
 
         //check the direction first
         int wallSize = current.wall.length;
-        int[] dir = new int[wallSize];
-        //order to check directions
-        switch (pathDirection) {
-            // which way is right if i'm facing east? check that way first
-            case Maze.EAST: // 0
-                dir = FacingEast;
-                break;
-            case Maze.NORTHEAST: // 1
-                dir = FacingNorthEast;
-                break;
-            case Maze.NORTHWEST: // 2
-                dir = FacingNorthWest;
-                break;
-            case Maze.WEST: // 3
-                dir = FacingWest;
-                break;
-            case Maze.SOUTHWEST: // 4
-                dir = FacingSouthWest;
-                break;
-            case Maze.SOUTHEAST: // 5
-                dir = FacingSouthEast;
-                break;
-            case DEFAULT_DIRECTION:
-                dir = FacingNorthWest;
-                break;
-        }
+        int[] dir = directionOrder(pathDirection);
 
 
         //choose the available path
         for (int i = 0; i < wallSize; i++) {
             int index = dir[i];
-            cell = current.neigh[index];
+            cell = maze.neighbour(current, index);
             wall = current.wall[index];
 
             if (cell == null || wall == null)
@@ -213,6 +248,31 @@ public class WallFollowerSolver implements MazeSolver {
         return cell;
     }
 
+    /**
+     * int[] directionOrder(int pathDirection)
+     * order to check directions in, which way is right if i'm facing
+     * pathDirection? check that way first
+     *
+     * @param pathDirection direction of the last step
+     * @return directions from right to left
+     */
+    private static int[] directionOrder(int pathDirection) {
+        switch (pathDirection) {
+            case Maze.EAST: // 0
+                return FacingEast;
+            case Maze.NORTHEAST: // 1
+                return FacingNorthEast;
+            case Maze.WEST: // 3
+                return FacingWest;
+            case Maze.SOUTHWEST: // 4
+                return FacingSouthWest;
+            case Maze.SOUTHEAST: // 5
+                return FacingSouthEast;
+            default: // NORTHWEST or DEFAULT_DIRECTION
+                return FacingNorthWest;
+        }
+    }
+
     @Override
     public boolean isSolved() {
         return isSolved;
@@ -220,7 +280,7 @@ public class WallFollowerSolver implements MazeSolver {
 
     @Override
     public int cellsExplored() {
-        return cellsExplored;
+        return (int) Math.min(cellsExplored, Integer.MAX_VALUE);
     } // end of cellsExplored()
 
 } // end of class WallFollowerSolver